@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ning.maven.plugins.dependencyversionscheck.cache.InFlightRequests;
+import com.ning.maven.plugins.dependencyversionscheck.cache.MissingArtifactCache;
+import com.ning.maven.plugins.dependencyversionscheck.cache.ProjectCache;
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+
+/**
+ * Measures the {@link ProjectCache} and {@link InFlightRequests} when many resolution threads use them at the same time, as
+ * with useParallelDependencyResolution. Building a pom is simulated by burning buildTokens of CPU, so the scores show the
+ * overhead of the caches and not of the repository. The scores are per request.
+ *
+ * <ul>
+ * <li>cachedPom - all threads request poms that are cached.</li>
+ * <li>pom - some threads request a small set of poms that stay cached while other threads request poms that mostly have to be
+ * built and evict other poms from the cache.</li>
+ * <li>coalescedRequest - all threads request a small set of keys, so most requests wait for a request of another thread.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheContentionBenchmark
+{
+    /** Number of poms. */
+    @Param({"1000"})
+    public int keyCount;
+
+    /** Number of keys for the requests of coalescedRequest. */
+    @Param({"16"})
+    public int inFlightKeyCount;
+
+    /** CPU to burn for building a pom, see {@link Blackhole#consumeCPU(long)}. */
+    @Param({"1000"})
+    public long buildTokens;
+
+    private Artifact[] artifacts;
+    private Integer[] inFlightKeys;
+
+    private ProjectCache cachedProjects;
+    private ProjectCache boundedProjects;
+    private InFlightRequests inFlightRequests;
+    private RunMetrics metrics;
+    private Cancellation cancellation;
+
+    private Callable buildProject;
+
+    @Setup
+    public void setup()
+        throws ProjectBuildingException
+    {
+        final DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+        artifacts = new Artifact[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            artifacts[i] = new DefaultArtifact("com.example.contention", "artifact-" + i, VersionRange.createFromVersion("1.0"),
+                                               Artifact.SCOPE_COMPILE, "jar", null, handler);
+        }
+        inFlightKeys = new Integer[inFlightKeyCount];
+        for (int i = 0; i < inFlightKeyCount; i++) {
+            inFlightKeys[i] = Integer.valueOf(i);
+        }
+
+        final MavenProject project = new MavenProject(new Model());
+        buildProject = new Callable() {
+            public Object call()
+            {
+                Blackhole.consumeCPU(buildTokens);
+                return project;
+            }
+        };
+
+        metrics = new RunMetrics();
+        cancellation = new Cancellation();
+        inFlightRequests = new InFlightRequests();
+
+        cachedProjects = new ProjectCache(keyCount, new MissingArtifactCache());
+        for (int i = 0; i < keyCount; i++) {
+            cachedProjects.get(artifacts[i], buildProject, cancellation, metrics);
+        }
+
+        // Holds a quarter of the poms, so most requests of buildPom miss.
+        boundedProjects = new ProjectCache(keyCount / 4, new MissingArtifactCache());
+    }
+
+    /**
+     * Picks the keys for a single thread, so that the threads do not contend for the random generator.
+     */
+    @State(Scope.Thread)
+    public static class Keys
+    {
+        private final Random random = new Random();
+
+        int next(final int bound)
+        {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MavenProject cachedPom(final Keys keys)
+        throws ProjectBuildingException
+    {
+        return cachedProjects.get(artifacts[keys.next(keyCount)], buildProject, cancellation, metrics);
+    }
+
+    @Benchmark
+    @Group("pom")
+    @GroupThreads(6)
+    public MavenProject hotPom(final Keys keys)
+        throws ProjectBuildingException
+    {
+        return boundedProjects.get(artifacts[keys.next(keyCount / 20)], buildProject, cancellation, metrics);
+    }
+
+    @Benchmark
+    @Group("pom")
+    @GroupThreads(2)
+    public MavenProject buildPom(final Keys keys)
+        throws ProjectBuildingException
+    {
+        return boundedProjects.get(artifacts[keys.next(keyCount)], buildProject, cancellation, metrics);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object coalescedRequest(final Keys keys)
+        throws ExecutionException, InterruptedException
+    {
+        return inFlightRequests.get(inFlightKeys[keys.next(inFlightKeyCount)], buildProject, metrics);
+    }
+}
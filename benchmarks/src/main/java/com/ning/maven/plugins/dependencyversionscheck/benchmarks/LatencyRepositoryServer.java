@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a directory as a remote Maven repository over HTTP and delays every request by a fixed time, to stand in for a
+ * remote repository manager. Missing files are answered with 404 after the same delay.
+ */
+final class LatencyRepositoryServer
+{
+    private final File directory;
+    private final long latencyMillis;
+    private final AtomicLong requests = new AtomicLong();
+
+    private HttpServer server = null;
+    private ExecutorService executor = null;
+
+    LatencyRepositoryServer(final File directory, final long latencyMillis)
+    {
+        this.directory = directory;
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Starts the server on a free port and returns its URL.
+     */
+    String start()
+        throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Requests sleep most of the time, so the server must not limit the concurrency of the client.
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(final HttpExchange exchange)
+                throws IOException
+            {
+                serve(exchange);
+            }
+        });
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    void stop()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    private void serve(final HttpExchange exchange)
+        throws IOException
+    {
+        requests.incrementAndGet();
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+
+            final File file = new File(directory, exchange.getRequestURI().getPath());
+            final boolean found = file.isFile() && file.getCanonicalPath().startsWith(directory.getCanonicalPath());
+            final boolean head = "HEAD".equals(exchange.getRequestMethod());
+
+            if (!found) {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            else if (head) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(file.length()));
+                exchange.sendResponseHeaders(200, -1);
+            }
+            else {
+                exchange.sendResponseHeaders(200, file.length() == 0 ? -1 : file.length());
+                final OutputStream out = exchange.getResponseBody();
+                try {
+                    Files.copy(file, out);
+                }
+                finally {
+                    out.close();
+                }
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            exchange.close();
+        }
+    }
+}
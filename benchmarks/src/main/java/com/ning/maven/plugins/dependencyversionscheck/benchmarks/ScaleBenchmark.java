@@ -0,0 +1,345 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.io.Files;
+
+/**
+ * Runs the check goal of the plugin against projects with synthetic dependency graphs of different sizes and reports how the
+ * plugin scales. Every project runs in its own Maven process, once with parallel and once with sequential dependency resolution.
+ * The synthetic artifacts are served from a generated repository, either directly from disk or through a local HTTP server that
+ * adds a fixed latency to every request. The plugin itself and its dependencies are taken from the local repository of the user,
+ * so the plugin must be installed first and no network access is needed.
+ *
+ * Options are given as --name=value:
+ * <ul>
+ * <li>artifacts - comma separated list of graph sizes. Default is 1000,5000,20000.</li>
+ * <li>fanOut - number of dependencies per artifact. Default is 5.</li>
+ * <li>depth - number of layers of the graph. Default is 4.</li>
+ * <li>skew - probability that a dependency asks for an older version. Default is 0.1.</li>
+ * <li>seed - seed for the graph. Default is 1.</li>
+ * <li>latency - delay in milliseconds for every request to the synthetic repository. 0 (the default) reads it from disk.</li>
+ * <li>modes - comma separated list of "parallel" and "sequential". Default is both.</li>
+ * <li>runs - number of measured runs per size and mode, after one warm-up run. Default is 3.</li>
+ * <li>mvn - the Maven executable. Default is "mvn".</li>
+ * <li>mavenOpts - MAVEN_OPTS for the Maven processes, e.g. "-Xmx2g".</li>
+ * <li>work - the work directory. Default is "target/scale".</li>
+ * <li>repository - the local repository the plugin is installed in. Default is ~/.m2/repository.</li>
+ * <li>pluginVersion - the version of the plugin. Default is the version of the benchmarks.</li>
+ * </ul>
+ *
+ * The results are printed and appended to results.csv in the work directory. Throughput is the number of synthetic artifacts per
+ * second of the plugin run; the thread utilization is the CPU time of the Maven process during the plugin run divided by its wall
+ * time and the number of processors. The plugin reports the peak heap usage of its JVM since it started; as every run has its own
+ * Maven process, this is the peak of the run.
+ */
+public final class ScaleBenchmark
+{
+    private static final String PLUGIN_GROUP_ID = "com.ning.maven.plugins";
+    private static final String PLUGIN_ARTIFACT_ID = "maven-dependency-versions-check-plugin";
+    private static final String DEFAULT_PLUGIN_VERSION = "2.0.5-SNAPSHOT";
+
+    private final Map options;
+    private final File work;
+    private final File localRepository;
+
+    private ScaleBenchmark(final Map options)
+    {
+        this.options = options;
+        this.work = new File(option("work", "target/scale")).getAbsoluteFile();
+        this.localRepository = new File(work, "local-repository");
+    }
+
+    public static void main(final String[] args)
+        throws Exception
+    {
+        final Map options = new HashMap();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || args[i].indexOf('=') < 0) {
+                throw new IllegalArgumentException("Options must be given as --name=value, got '" + args[i] + "'");
+            }
+            options.put(args[i].substring(2, args[i].indexOf('=')), args[i].substring(args[i].indexOf('=') + 1));
+        }
+        new ScaleBenchmark(options).run();
+    }
+
+    private void run()
+        throws Exception
+    {
+        final int fanOut = Integer.parseInt(option("fanOut", "5"));
+        final int depth = Integer.parseInt(option("depth", "4"));
+        final double skew = Double.parseDouble(option("skew", "0.1"));
+        final long seed = Long.parseLong(option("seed", "1"));
+        final long latency = Long.parseLong(option("latency", "0"));
+        final int runs = Integer.parseInt(option("runs", "3"));
+        final List modes = Splitter.on(',').trimResults().splitToList(option("modes", "parallel,sequential"));
+
+        installPlugin();
+
+        final File results = new File(work, "results.csv");
+        if (!results.isFile()) {
+            Files.write("artifacts,fanOut,depth,skew,latencyMillis,mode,run,processMillis,pluginMillis,artifactsPerSecond,peakHeapMb,threadUtilization,remoteRequests\n",
+                results, Charsets.UTF_8);
+        }
+
+        System.out.println(String.format(Locale.ENGLISH, "%9s %-10s %4s %10s %10s %12s %9s %11s %9s",
+            "artifacts", "mode", "run", "process ms", "plugin ms", "artifacts/s", "heap MB", "utilization", "requests"));
+
+        final List sizes = Splitter.on(',').trimResults().splitToList(option("artifacts", "1000,5000,20000"));
+        for (int s = 0; s < sizes.size(); s++) {
+            final int artifactCount = Integer.parseInt((String) sizes.get(s));
+            final SyntheticRepository repository = new SyntheticRepository(artifactCount, fanOut, depth, skew, seed);
+            final File repositoryDirectory = new File(work, "repositories/" + repository.getName());
+            repository.generate(repositoryDirectory);
+
+            final LatencyRepositoryServer server = latency > 0 ? new LatencyRepositoryServer(repositoryDirectory, latency) : null;
+            final String url = server != null ? server.start() : repositoryDirectory.toURI().toString();
+            try {
+                final File project = writeProject(repository, url);
+
+                for (int m = 0; m < modes.size(); m++) {
+                    final String mode = (String) modes.get(m);
+                    // run 0 warms up the JIT and the file system caches and is not reported.
+                    for (int run = 0; run <= runs; run++) {
+                        final long requestsBefore = server != null ? server.getRequestCount() : 0L;
+                        final Result result = runMaven(project, mode, repository.getName() + "-" + mode + "-" + run);
+                        final long requests = server != null ? server.getRequestCount() - requestsBefore : 0L;
+
+                        if (run > 0) {
+                            report(results, artifactCount, fanOut, depth, skew, latency, mode, run, result, requests);
+                        }
+                    }
+                }
+            }
+            finally {
+                if (server != null) {
+                    server.stop();
+                }
+            }
+        }
+    }
+
+    private String option(final String name, final String defaultValue)
+    {
+        final String value = (String) options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Copies the installed plugin into the local repository of the benchmark. Its dependencies are read from the local repository
+     * of the user, which is added as a remote repository; that does not work for SNAPSHOTs, which is why the plugin is copied.
+     */
+    private void installPlugin()
+        throws IOException
+    {
+        final String version = option("pluginVersion", DEFAULT_PLUGIN_VERSION);
+        final String path = PLUGIN_GROUP_ID.replace('.', '/') + "/" + PLUGIN_ARTIFACT_ID + "/" + version;
+        final File source = new File(getUserRepository(), path);
+        final File[] files = source.listFiles();
+        if (files == null) {
+            throw new IllegalStateException("Plugin not found in " + source + ", run 'mvn install' first");
+        }
+        final File target = new File(localRepository, path);
+        for (int i = 0; i < files.length; i++) {
+            if (files[i].isFile()) {
+                Files.createParentDirs(new File(target, files[i].getName()));
+                Files.copy(files[i], new File(target, files[i].getName()));
+            }
+        }
+    }
+
+    private File getUserRepository()
+    {
+        return new File(option("repository", System.getProperty("user.home") + "/.m2/repository"));
+    }
+
+    private File writeProject(final SyntheticRepository repository, final String url)
+        throws IOException
+    {
+        final File directory = new File(work, "projects/" + repository.getName());
+        final StringBuilder dependencies = new StringBuilder();
+        final List direct = repository.getDirectDependencies();
+        for (int i = 0; i < direct.size(); i++) {
+            dependencies.append("    <dependency>\n")
+              .append("      <groupId>").append(SyntheticRepository.GROUP_ID).append("</groupId>\n")
+              .append("      <artifactId>").append(direct.get(i)).append("</artifactId>\n")
+              .append("      <version>").append(SyntheticRepository.VERSIONS[SyntheticRepository.VERSIONS.length - 1]).append("</version>\n")
+              .append("    </dependency>\n");
+        }
+
+        final String userRepositoryUrl = getUserRepository().toURI().toString();
+        final String pom = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <groupId>com.example</groupId>\n"
+            + "  <artifactId>scale-" + repository.getName() + "</artifactId>\n"
+            + "  <version>1.0</version>\n"
+            + "  <packaging>pom</packaging>\n"
+            + "  <repositories>\n"
+            + "    <repository><id>synthetic</id><url>" + url + "</url><snapshots><enabled>false</enabled></snapshots></repository>\n"
+            + "    <repository><id>user-local</id><url>" + userRepositoryUrl + "</url><snapshots><enabled>false</enabled></snapshots></repository>\n"
+            + "  </repositories>\n"
+            + "  <pluginRepositories>\n"
+            + "    <pluginRepository><id>user-local</id><url>" + userRepositoryUrl + "</url><snapshots><enabled>false</enabled></snapshots></pluginRepository>\n"
+            + "  </pluginRepositories>\n"
+            + "  <dependencies>\n" + dependencies + "  </dependencies>\n"
+            + "  <build>\n"
+            + "    <plugins>\n"
+            + "      <plugin>\n"
+            + "        <groupId>" + PLUGIN_GROUP_ID + "</groupId>\n"
+            + "        <artifactId>" + PLUGIN_ARTIFACT_ID + "</artifactId>\n"
+            + "        <version>" + option("pluginVersion", DEFAULT_PLUGIN_VERSION) + "</version>\n"
+            + "        <configuration>\n"
+            + "          <useParallelDependencyResolution>${scale.parallel}</useParallelDependencyResolution>\n"
+            + "          <metricsFile>${scale.metricsFile}</metricsFile>\n"
+            + "          <metricsFormat>json</metricsFormat>\n"
+            + "        </configuration>\n"
+            + "      </plugin>\n"
+            + "    </plugins>\n"
+            + "  </build>\n"
+            + "</project>\n";
+
+        // No mirrors, so that the synthetic repository is used even if the settings of the user define a mirror for everything.
+        final String settings = "<settings>\n"
+            + "  <localRepository>" + localRepository.getAbsolutePath() + "</localRepository>\n"
+            + "</settings>\n";
+
+        Files.createParentDirs(new File(directory, "pom.xml"));
+        Files.write(pom, new File(directory, "pom.xml"), Charsets.UTF_8);
+        Files.write(settings, new File(directory, "settings.xml"), Charsets.UTF_8);
+        return directory;
+    }
+
+    /**
+     * Runs the check goal in a new Maven process. The synthetic artifacts are removed from the local repository first, so that every
+     * run reads them from the synthetic repository.
+     */
+    private Result runMaven(final File project, final String mode, final String name)
+        throws IOException, InterruptedException
+    {
+        deleteRecursively(new File(localRepository, SyntheticRepository.GROUP_ID.replace('.', '/')));
+
+        final File metrics = new File(work, "metrics/" + name + ".json");
+        final File log = new File(work, "logs/" + name + ".log");
+        Files.createParentDirs(metrics);
+        Files.createParentDirs(log);
+        if (metrics.isFile() && !metrics.delete()) {
+            throw new IOException("Could not remove " + metrics);
+        }
+
+        final List command = new ArrayList(Arrays.asList(new String[] {
+            option("mvn", "mvn"), "-B",
+            "-s", new File(project, "settings.xml").getAbsolutePath(),
+            "-f", new File(project, "pom.xml").getAbsolutePath(),
+            "-Dscale.parallel=" + "parallel".equals(mode),
+            "-Dscale.metricsFile=" + metrics.getAbsolutePath(),
+            // The HTTP server of the JDK closes surplus idle connections without telling the client, which then fails on the
+            // next request over that connection. Connections to the local server are cheap, so do not reuse them.
+            "-Daether.connector.http.reuseConnections=false",
+            "-Dmaven.wagon.http.pool=false",
+            PLUGIN_GROUP_ID + ":" + PLUGIN_ARTIFACT_ID + ":" + option("pluginVersion", DEFAULT_PLUGIN_VERSION) + ":check"
+        }));
+
+        final ProcessBuilder builder = new ProcessBuilder(command).directory(project).redirectErrorStream(true).redirectOutput(log);
+        if (options.containsKey("mavenOpts")) {
+            builder.environment().put("MAVEN_OPTS", option("mavenOpts", ""));
+        }
+
+        final long start = System.nanoTime();
+        final int exitCode = builder.start().waitFor();
+        final long processMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if (exitCode != 0 || !metrics.isFile()) {
+            throw new IllegalStateException("Maven failed with exit code " + exitCode + ", see " + log);
+        }
+
+        final String json = Files.toString(metrics, Charsets.UTF_8);
+        return new Result(processMillis, getLong(json, "totalMillis"), getLong(json, "jvmPeakHeapBytes"), getLong(json, "cpuMillis"), getLong(json, "processors"));
+    }
+
+    private static long getLong(final String json, final String name)
+    {
+        final Matcher matcher = Pattern.compile("\"" + name + "\":(-?\\d+)").matcher(json);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No " + name + " in metrics " + json);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void report(final File results, final int artifactCount, final int fanOut, final int depth, final double skew, final long latency,
+        final String mode, final int run, final Result result, final long requests)
+        throws IOException
+    {
+        final double seconds = Math.max(result.pluginMillis, 1L) / 1000.0;
+        final double throughput = artifactCount / seconds;
+        final double utilization = result.cpuMillis < 0 ? -1.0 : result.cpuMillis / (double) (Math.max(result.pluginMillis, 1L) * result.processors);
+        final long heapMb = result.peakHeapBytes >> 20;
+
+        System.out.println(String.format(Locale.ENGLISH, "%9d %-10s %4d %10d %10d %12.0f %9d %11.2f %9d",
+            artifactCount, mode, run, result.processMillis, result.pluginMillis, throughput, heapMb, utilization, requests));
+
+        Files.append(String.format(Locale.ENGLISH, "%d,%d,%d,%.2f,%d,%s,%d,%d,%d,%.0f,%d,%.2f,%d%n",
+            artifactCount, fanOut, depth, skew, latency, mode, run, result.processMillis, result.pluginMillis, throughput, heapMb, utilization, requests),
+            results, Charsets.UTF_8);
+    }
+
+    private static void deleteRecursively(final File file)
+        throws IOException
+    {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                deleteRecursively(children[i]);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not remove " + file);
+        }
+    }
+
+    private static final class Result
+    {
+        private final long processMillis;
+        private final long pluginMillis;
+        private final long peakHeapBytes;
+        private final long cpuMillis;
+        private final long processors;
+
+        private Result(final long processMillis, final long pluginMillis, final long peakHeapBytes, final long cpuMillis, final long processors)
+        {
+            this.processMillis = processMillis;
+            this.pluginMillis = pluginMillis;
+            this.peakHeapBytes = peakHeapBytes;
+            this.cpuMillis = cpuMillis;
+            this.processors = processors;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ning.maven.plugins.dependencyversionscheck.strategy.APRVersionStrategy;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.DefaultVersionStrategy;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.SingleDigitVersionStrategy;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.Strategy;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.TwoDigitsBackwardCompatibleVersionStrategy;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+/**
+ * Measures {@link Strategy#isCompatible(Version, Version)} of the bundled strategies. Every version of an artifact in the corpus is
+ * compared with every other version of the same artifact in both directions, which is what the plugin does when a dependency is
+ * expected in different versions. The scores are per comparison. Run with "-prof gc" to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark
+{
+    /** Number of version pairs in the corpus, needed as a constant for the annotations. Checked in setup(). */
+    static final int PAIR_COUNT = 2212;
+
+    @Param({"default", "apr", "two-digits-backward-compatible", "single-digit"})
+    public String strategyName;
+
+    private Strategy strategy;
+    private Version[] resolved;
+    private Version[] expected;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        strategy = createStrategy(strategyName);
+
+        final List resolvedList = new ArrayList();
+        final List expectedList = new ArrayList();
+        final List artifacts = VersionCorpus.load().getArtifacts();
+        for (int i = 0; i < artifacts.size(); i++) {
+            final List artifactVersions = (List) artifacts.get(i);
+            for (int a = 0; a < artifactVersions.size(); a++) {
+                for (int b = 0; b < artifactVersions.size(); b++) {
+                    if (a != b) {
+                        resolvedList.add(new Version((String) artifactVersions.get(a)));
+                        expectedList.add(new Version((String) artifactVersions.get(b)));
+                    }
+                }
+            }
+        }
+        if (resolvedList.size() != PAIR_COUNT) {
+            throw new IllegalStateException("Corpus has " + resolvedList.size() + " version pairs, update PAIR_COUNT");
+        }
+
+        resolved = (Version[]) resolvedList.toArray(new Version[resolvedList.size()]);
+        expected = (Version[]) expectedList.toArray(new Version[expectedList.size()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void isCompatible(final Blackhole blackhole)
+    {
+        for (int i = 0; i < resolved.length; i++) {
+            blackhole.consume(strategy.isCompatible(resolved[i], expected[i]));
+        }
+    }
+
+    private static Strategy createStrategy(final String name)
+    {
+        final Strategy[] strategies = new Strategy[] {
+            new DefaultVersionStrategy(),
+            new APRVersionStrategy(),
+            new TwoDigitsBackwardCompatibleVersionStrategy(),
+            new SingleDigitVersionStrategy()
+        };
+        for (int i = 0; i < strategies.length; i++) {
+            if (strategies[i].getName().equals(name)) {
+                return strategies[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown strategy '" + name + "'");
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Generates a repository (in the layout of a Maven 2 repository) with a layered dependency graph. The artifacts of the first
+ * layer are the direct dependencies of the project; every artifact depends on artifacts of the next layer. Every artifact is
+ * published in several versions and dependencies usually ask for the newest one; with the probability given by the skew they
+ * ask for an older version instead, which the plugin then reports as a conflict.
+ *
+ * The graph only depends on the parameters and the seed, so the same parameters always generate the same repository.
+ */
+final class SyntheticRepository
+{
+    static final String GROUP_ID = "com.example.synthetic";
+
+    /** Versions every artifact is published in, oldest first. */
+    static final String[] VERSIONS = {"1.0.0", "1.1.0", "1.2.0"};
+
+    /** Jar files must be valid zip files; this is an empty one. */
+    private static final byte[] EMPTY_JAR = {0x50, 0x4b, 0x05, 0x06, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    private final int artifactCount;
+    private final int fanOut;
+    private final int depth;
+    private final double skew;
+    private final long seed;
+
+    /** One list of artifact ids per layer. */
+    private final List layers = new ArrayList();
+
+    SyntheticRepository(final int artifactCount, final int fanOut, final int depth, final double skew, final long seed)
+    {
+        if (artifactCount < depth || fanOut < 1 || depth < 1) {
+            throw new IllegalArgumentException("Need at least one artifact per layer and a fan-out of at least one");
+        }
+        this.artifactCount = artifactCount;
+        this.fanOut = fanOut;
+        this.depth = depth;
+        this.skew = skew;
+        this.seed = seed;
+
+        // Layer sizes grow by the fan-out, so that every layer can be reached from the one above.
+        long weight = 0;
+        for (int i = 0; i < depth; i++) {
+            weight += (long) Math.pow(fanOut, i);
+        }
+        int remaining = artifactCount;
+        final int first = (int) Math.max(1L, artifactCount / weight);
+        for (int i = 0; i < depth; i++) {
+            final int size = (i == depth - 1) ? remaining : (int) Math.min(remaining - (depth - 1 - i), first * (long) Math.pow(fanOut, i));
+            final List layer = new ArrayList(size);
+            for (int j = 0; j < size; j++) {
+                layer.add("artifact-" + i + "-" + j);
+            }
+            layers.add(layer);
+            remaining -= size;
+        }
+    }
+
+    /**
+     * Returns the artifact ids of the direct dependencies of the project.
+     */
+    List getDirectDependencies()
+    {
+        return (List) layers.get(0);
+    }
+
+    /**
+     * Returns a short description of the parameters, also used as the name of the directory of the repository.
+     */
+    String getName()
+    {
+        return "n" + artifactCount + "-f" + fanOut + "-d" + depth + "-s" + Math.round(skew * 100) + "-r" + seed;
+    }
+
+    /**
+     * Writes the poms and jars of all artifacts into the given directory, unless it already contains this repository.
+     */
+    void generate(final File directory)
+        throws IOException
+    {
+        final File marker = new File(directory, ".generated");
+        if (marker.isFile()) {
+            return;
+        }
+
+        final Random random = new Random(seed);
+        for (int i = 0; i < layers.size(); i++) {
+            final List layer = (List) layers.get(i);
+            final List next = (i + 1 < layers.size()) ? (List) layers.get(i + 1) : null;
+
+            for (int j = 0; j < layer.size(); j++) {
+                final String artifactId = (String) layer.get(j);
+                final StringBuilder dependencies = new StringBuilder();
+
+                if (next != null) {
+                    // every artifact of the next layer is used by at least one artifact of this layer.
+                    for (int k = j; k < next.size(); k += layer.size()) {
+                        appendDependency(dependencies, (String) next.get(k), random);
+                    }
+                    final Set picked = new LinkedHashSet();
+                    for (int k = 0; k < fanOut; k++) {
+                        final int index = random.nextInt(next.size());
+                        if (index % layer.size() != j) {
+                            picked.add(Integer.valueOf(index));
+                        }
+                    }
+                    for (final Iterator it = picked.iterator(); it.hasNext();) {
+                        appendDependency(dependencies, (String) next.get(((Integer) it.next()).intValue()), random);
+                    }
+                }
+
+                for (int v = 0; v < VERSIONS.length; v++) {
+                    writeArtifact(directory, artifactId, VERSIONS[v], dependencies.toString());
+                }
+            }
+        }
+
+        Files.write("", marker, Charsets.UTF_8);
+    }
+
+    private void appendDependency(final StringBuilder sb, final String artifactId, final Random random)
+    {
+        final String version = random.nextDouble() < skew ? VERSIONS[random.nextInt(VERSIONS.length - 1)] : VERSIONS[VERSIONS.length - 1];
+        sb.append("    <dependency>\n")
+          .append("      <groupId>").append(GROUP_ID).append("</groupId>\n")
+          .append("      <artifactId>").append(artifactId).append("</artifactId>\n")
+          .append("      <version>").append(version).append("</version>\n")
+          .append("    </dependency>\n");
+    }
+
+    private static void writeArtifact(final File directory, final String artifactId, final String version, final String dependencies)
+        throws IOException
+    {
+        final File artifactDirectory = new File(directory, GROUP_ID.replace('.', '/') + "/" + artifactId + "/" + version);
+        final String baseName = artifactId + "-" + version;
+
+        final String pom = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <groupId>" + GROUP_ID + "</groupId>\n"
+            + "  <artifactId>" + artifactId + "</artifactId>\n"
+            + "  <version>" + version + "</version>\n"
+            + "  <dependencies>\n" + dependencies + "  </dependencies>\n"
+            + "</project>\n";
+
+        Files.createParentDirs(new File(artifactDirectory, baseName + ".pom"));
+        Files.write(pom, new File(artifactDirectory, baseName + ".pom"), Charsets.UTF_8);
+        Files.write(EMPTY_JAR, new File(artifactDirectory, baseName + ".jar"));
+    }
+}
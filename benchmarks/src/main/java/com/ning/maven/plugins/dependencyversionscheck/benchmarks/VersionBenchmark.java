@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+/**
+ * Measures parsing, equality and hashing of versions. Every invocation works on the whole corpus, so the scores are per
+ * version. Run with "-prof gc" to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionBenchmark
+{
+    /** Number of versions in the corpus, needed as a constant for the annotations. Checked in setup(). */
+    static final int CORPUS_SIZE = 489;
+
+    private String[] versionStrings;
+    private Version[] versions;
+    private Version[] copies;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        final List corpus = VersionCorpus.load().getVersions();
+        if (corpus.size() != CORPUS_SIZE) {
+            throw new IllegalStateException("Corpus has " + corpus.size() + " versions, update CORPUS_SIZE");
+        }
+
+        versionStrings = (String[]) corpus.toArray(new String[corpus.size()]);
+        versions = new Version[versionStrings.length];
+        copies = new Version[versionStrings.length];
+        for (int i = 0; i < versionStrings.length; i++) {
+            versions[i] = new Version(versionStrings[i]);
+            // Distinct instances, so that equals() can not take the identity shortcut.
+            copies[i] = new Version(new String(versionStrings[i]));
+        }
+    }
+
+    /**
+     * Parses every version from scratch.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void parse(final Blackhole blackhole)
+    {
+        for (int i = 0; i < versionStrings.length; i++) {
+            blackhole.consume(new Version(versionStrings[i]));
+        }
+    }
+
+    /**
+     * Looks up every version in the version pool, as the plugin does. All versions are in the pool after the first invocation.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void lookupInterned(final Blackhole blackhole)
+    {
+        for (int i = 0; i < versionStrings.length; i++) {
+            blackhole.consume(Version.of(versionStrings[i]));
+        }
+    }
+
+    /**
+     * Compares every version with an equal copy and with its neighbour in the corpus.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void equalsVersion(final Blackhole blackhole)
+    {
+        for (int i = 0; i < versions.length; i++) {
+            blackhole.consume(versions[i].equals(copies[i]));
+            blackhole.consume(versions[i].equals(copies[(i + 1) % copies.length]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void hashCodeVersion(final Blackhole blackhole)
+    {
+        for (int i = 0; i < versions.length; i++) {
+            blackhole.consume(versions[i].hashCode());
+        }
+    }
+}
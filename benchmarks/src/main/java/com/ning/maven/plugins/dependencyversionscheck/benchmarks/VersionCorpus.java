@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.ning.maven.plugins.dependencyversionscheck.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.io.Resources;
+
+/**
+ * The version strings the benchmarks run on. They are taken from popular artifacts on Maven Central and are grouped by
+ * artifact, so that comparing the versions of a group resembles what the plugin compares in a real build.
+ */
+final class VersionCorpus
+{
+    private static final String RESOURCE = "versions.txt";
+
+    private final List artifacts;
+    private final List versions;
+
+    private VersionCorpus(final List artifacts, final List versions)
+    {
+        this.artifacts = artifacts;
+        this.versions = versions;
+    }
+
+    static VersionCorpus load()
+        throws IOException
+    {
+        final List lines = Resources.readLines(Resources.getResource(VersionCorpus.class, RESOURCE), Charsets.UTF_8);
+        final List artifacts = new ArrayList();
+        final List versions = new ArrayList();
+
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = ((String) lines.get(i)).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final List fields = Splitter.on(' ').omitEmptyStrings().splitToList(line);
+            final List artifactVersions = fields.subList(1, fields.size());
+            artifacts.add(Collections.unmodifiableList(new ArrayList(artifactVersions)));
+            versions.addAll(artifactVersions);
+        }
+        return new VersionCorpus(Collections.unmodifiableList(artifacts), Collections.unmodifiableList(versions));
+    }
+
+    /**
+     * Returns all version strings.
+     */
+    List getVersions()
+    {
+        return versions;
+    }
+
+    /**
+     * Returns the version strings grouped by artifact, every group is a list of strings.
+     */
+    List getArtifacts()
+    {
+        return artifacts;
+    }
+}
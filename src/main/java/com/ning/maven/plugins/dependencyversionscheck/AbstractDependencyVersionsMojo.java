@@ -16,20 +16,24 @@
 
 package com.ning.maven.plugins.dependencyversionscheck;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.locks.Lock;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
@@ -42,7 +46,6 @@ import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
 import org.apache.maven.artifact.resolver.ArtifactCollector;
 import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionException;
-import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.resolver.MultipleArtifactsNotFoundException;
 import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
@@ -69,15 +72,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Throwables;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
-import com.google.common.util.concurrent.Striped;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.ning.maven.plugins.dependencyversionscheck.cache.MissingArtifactCache;
+import com.ning.maven.plugins.dependencyversionscheck.cache.PersistentResolutionCache;
+import com.ning.maven.plugins.dependencyversionscheck.cache.ProjectCache;
+import com.ning.maven.plugins.dependencyversionscheck.cache.ReactorCache;
+import com.ning.maven.plugins.dependencyversionscheck.engine.GraphResolutionEngine;
+import com.ning.maven.plugins.dependencyversionscheck.engine.RepositoryLookup;
+import com.ning.maven.plugins.dependencyversionscheck.engine.TreeResolutionEngine;
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+import com.ning.maven.plugins.dependencyversionscheck.executor.ResolutionExecutor;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.report.ReportWriter;
 import com.ning.maven.plugins.dependencyversionscheck.strategy.Strategy;
 import com.ning.maven.plugins.dependencyversionscheck.strategy.StrategyProvider;
 import com.ning.maven.plugins.dependencyversionscheck.util.ArtifactOptionalFilter;
 import com.ning.maven.plugins.dependencyversionscheck.util.ArtifactScopeFilter;
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
 import com.ning.maven.plugins.dependencyversionscheck.version.Version;
 import com.ning.maven.plugins.dependencyversionscheck.version.VersionResolution;
 import com.pyx4j.log4j.MavenLogAppender;
@@ -87,7 +101,8 @@ import com.pyx4j.log4j.MavenLogAppender;
  */
 public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
 {
-    private static final int DEPENDENCY_RESOLUTION_NUM_THREADS = Runtime.getRuntime().availableProcessors() * 5;
+    /** Number of transitive dependencies that are checked by a single task if the check is split. */
+    private static final int TRANSITIVE_CHECK_BATCH_SIZE = 64;
 
     /**
      * The maven project (effective pom).
@@ -134,6 +149,20 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      */
     protected ArtifactMetadataSource artifactMetadataSource;
 
+    /**
+     * Caches that are shared by all modules of a build.
+     *
+     * @component
+     */
+    protected ReactorCache reactorCache;
+
+    /**
+     * Runs the parallel dependency resolution, shared by all modules.
+     *
+     * @component
+     */
+    protected ResolutionExecutor resolutionExecutor;
+
     /**
      * The local repo for the project if defined;
      *
@@ -166,6 +195,23 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      */
     protected List remoteRepositories;
 
+    /**
+     * Whether Maven runs offline.
+     *
+     * @parameter expression="${settings.offline}"
+     * @readonly
+     */
+    protected boolean offline;
+
+    /**
+     * All projects of the current build.
+     *
+     * @parameter expression="${reactorProjects}"
+     * @required
+     * @readonly
+     */
+    protected List reactorProjects;
+
     /**
      * A set of artifacts with expected and resolved versions that are to be except from the check.
      *
@@ -202,6 +248,74 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      */
     protected boolean useParallelDependencyResolution;
 
+    /**
+     * Selects the threads that run the parallel dependency resolution. "platform" uses a pool of resolutionThreads threads.
+     * "virtual" starts a virtual thread for every task, so the number of concurrent repository requests is not limited by
+     * the size of the pool. Virtual threads need Java 21 or later; on older JVMs, the thread pool is used.
+     *
+     * @parameter expression="${resolutionThreadType}" default-value="platform"
+     */
+    protected String resolutionThreadType = "platform";
+
+    /**
+     * Number of threads for the parallel dependency resolution. 0 uses five threads per available processor.
+     * The threads are shared by all modules of a build.
+     *
+     * @parameter expression="${resolutionThreads}" default-value="0"
+     */
+    protected int resolutionThreads = 0;
+
+    /**
+     * Maximum number of resolution tasks waiting for a thread. If the queue is full, the module resolves the
+     * dependency itself. 0 does not limit the queue.
+     *
+     * @parameter expression="${resolutionQueueSize}" default-value="0"
+     */
+    protected int resolutionQueueSize = 0;
+
+    /**
+     * Number of seconds an idle resolution thread is kept before it ends.
+     *
+     * @parameter expression="${resolutionThreadKeepAlive}" default-value="60"
+     */
+    protected long resolutionThreadKeepAlive = 60L;
+
+    /**
+     * Whether to split the resolution of a single direct dependency into smaller tasks, so that direct dependencies with
+     * very large dependency graphs do not keep a single thread busy while the others are idle. The "graph" resolution engine
+     * then loads the poms of all children of a node in parallel, and large sets of transitive dependencies are checked in
+     * batches. Only used with parallel dependency resolution.
+     *
+     * @parameter expression="${workStealingResolution}" default-value="false"
+     */
+    protected boolean workStealingResolution;
+
+    /**
+     * Whether to load the poms of all artifacts in the dependency tree of the project before the dependencies are resolved. The poms
+     * are loaded by prefetchThreads tasks in parallel, so that the resolution that follows finds them in the local repository and
+     * in memory instead of waiting for the repositories one by one. Only used with parallel dependency resolution and not with the
+     * "tree" resolution engine, which does not read any poms.
+     *
+     * @parameter expression="${prefetchPoms}" default-value="false"
+     */
+    protected boolean prefetchPoms;
+
+    /**
+     * The maximum number of poms that are loaded at the same time by prefetchPoms.
+     *
+     * @parameter expression="${prefetchThreads}" default-value="8"
+     */
+    protected int prefetchThreads = 8;
+
+    /**
+     * Whether to build the poms of released artifacts from the local repository first. The remote repositories are only asked
+     * if a pom is missing there, so poms that were downloaded before need no update checks. Transitive dependencies are always
+     * resolved with the remote repositories, as they may contain version ranges and SNAPSHOTs.
+     *
+     * @parameter expression="${localRepositoryFirst}" default-value="false"
+     */
+    protected boolean localRepositoryFirst;
+
     /**
      * Resolvers to resolve versions and compare existing things.
      *
@@ -230,6 +344,86 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      */
     protected String defaultStrategy = "default";
 
+    /**
+     * Whether to keep the transitive resolution results of released dependencies in a persistent cache
+     * that is reused across builds. SNAPSHOT dependencies and results that contain SNAPSHOTs or version
+     * ranges are always resolved.
+     *
+     * @parameter expression="${useResolutionCache}" default-value="false"
+     */
+    protected boolean useResolutionCache;
+
+    /**
+     * Location of the persistent resolution cache. Defaults to ".cache/dependency-versions-check" in the local repository.
+     *
+     * @parameter expression="${resolutionCacheDirectory}"
+     */
+    protected File resolutionCacheDirectory;
+
+    /**
+     * Remove all entries from the persistent resolution cache before resolving dependencies.
+     *
+     * @parameter expression="${clearResolutionCache}" default-value="false"
+     */
+    protected boolean clearResolutionCache;
+
+    /**
+     * Number of minutes a pom that could not be built is remembered across builds. Within a build, poms, transitive dependencies
+     * and artifacts that could not be resolved are always only tried once. With a value greater than 0, the poms are also stored
+     * next to the persistent resolution cache and later builds do not try them again until this time has passed.
+     *
+     * @parameter expression="${missingArtifactTtl}" default-value="0"
+     */
+    protected int missingArtifactTtl = 0;
+
+    /**
+     * Maximum number of poms (and transitive dependency sets) that are kept in memory while resolving dependencies.
+     * The poms are shared between all modules of a build.
+     *
+     * @parameter expression="${projectCacheSize}" default-value="1000"
+     */
+    protected int projectCacheSize = 1000;
+
+    /**
+     * Selects how the transitive dependencies of every direct dependency are resolved. "resolver" runs the Maven artifact
+     * resolver for every direct dependency. "graph" walks the combined dependency graph once and shares all poms between
+     * the direct dependencies. "tree" derives the transitive dependencies from the dependency tree of the project without
+     * any further repository access and falls back to the resolver where the tree can not be used.
+     *
+     * @parameter expression="${resolutionEngine}" default-value="resolver"
+     */
+    protected String resolutionEngine = "resolver";
+
+    /**
+     * If set, the resolutions of all dependencies are written to this file in the format given by reportFormat.
+     *
+     * @parameter expression="${reportFile}"
+     */
+    protected File reportFile;
+
+    /**
+     * The format of the report. Valid values are "json" and "xml".
+     *
+     * @parameter expression="${reportFormat}" default-value="json"
+     */
+    protected String reportFormat = ReportWriter.FORMAT_JSON;
+
+    /**
+     * If set, the time spent in the phases of the run and the counters of the run summary are written to this file in the format
+     * given by metricsFormat. In a reactor build, a file outside of the module directory gets the artifactId of the module added to
+     * its name, so the modules do not overwrite each other.
+     *
+     * @parameter expression="${metricsFile}"
+     */
+    protected File metricsFile;
+
+    /**
+     * The format of the metrics file. Valid values are "json" and "prometheus" (the Prometheus text format).
+     *
+     * @parameter expression="${metricsFormat}" default-value="json"
+     */
+    protected String metricsFormat = RunMetrics.FORMAT_JSON;
+
     /** Lists all available scopes for transitive dependency resolution. */
     protected static final Map TRANSITIVE_SCOPES;
 
@@ -256,24 +450,55 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
 
     protected final Logger LOG = LoggerFactory.getLogger(this.getClass());
 
-    /** ArtifactName to VersionStrategy. Filled in loadResolvers(). */
-    protected final Map resolverMap = new HashMap();
+    /** ArtifactName to VersionStrategy. Every strategy is looked up only once, also when the dependencies are resolved in parallel. */
+    protected final LoadingCache resolverMap = CacheBuilder.newBuilder().build(new CacheLoader() {
+        public Object load(final Object dependencyName)
+        {
+            return lookupStrategy((String) dependencyName);
+        }
+    });
 
-    /** Artifact pattern to VersionStrategy. Filled in loadResolvers(). */
-    protected final Map resolverPatternMap = new HashMap();
+    /** Includes of all resolvers. Filled in loadResolvers(). */
+    protected final ResolverMatcher resolverMatcher = new ResolverMatcher();
 
     /** Qualified artifact name to artifact. */
     protected final Map resolvedDependenciesByName = new HashMap();
 
     protected Strategy defaultStrategyType;
 
+    /** Persistent resolution cache. Null if the cache is not used. */
+    private PersistentResolutionCache resolutionCache = null;
+
+    /** Everything that could not be resolved. Shared by all modules, taken from the reactor cache in execute(). */
+    private MissingArtifactCache missingArtifactCache;
+
+    /** Builds poms and resolves dependencies from the repositories. Created in execute(). */
+    private RepositoryLookup repositoryLookup;
+
+    /** Poms built from the repository. Shared by all modules, taken from the reactor cache in execute(). */
+    private ProjectCache projectCache;
+
+    /** Shared dependency graph. Null unless the "graph" resolution engine is used. */
+    private GraphResolutionEngine graphEngine = null;
+
+    /** Dependency tree of the project. Built in execute(). */
+    private DependencyNode dependencyTree = null;
+
+    /** True once the poms of the dependency tree were loaded by prefetchPoms(). */
+    private boolean pomsPrefetched = false;
+
+    /** Dependency tree of the project. Null unless the "tree" resolution engine is used. */
+    private TreeResolutionEngine treeEngine = null;
+
+    /** Stops the resolution tasks of the current run. Replaced by every call to buildResolutionMap(). */
+    private volatile Cancellation resolutionCancellation = new Cancellation();
+
+    /** Timers and counters of this run. */
+    protected final RunMetrics metrics = new RunMetrics();
+
     /** Keeps track of the longest name for an artifact for printing out nicely. */
     protected int maxLen = -1;
 
-    private final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(DEPENDENCY_RESOLUTION_NUM_THREADS,
-        new ThreadFactoryBuilder().setNameFormat("dependency-version-check-worker-%s").setDaemon(true).build()));
-
-    private final Striped resolutionMapLocks = Striped.lock(DEPENDENCY_RESOLUTION_NUM_THREADS);
 
     public void execute() throws MojoExecutionException, MojoFailureException
     {
@@ -285,8 +510,32 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
             }
             else {
                 checkExceptions();
+                if (reportFile != null && !ReportWriter.isSupported(reportFormat)) {
+                    throw new MojoExecutionException("Unknown report format '" + reportFormat + "'!");
+                }
+                if (metricsFile != null && !RunMetrics.isSupported(metricsFormat)) {
+                    throw new MojoExecutionException("Unknown metrics format '" + metricsFormat + "'!");
+                }
+                setupResolutionCache();
+                reactorCache.start(reactorProjects, projectCacheSize);
+                if (!"platform".equals(resolutionThreadType) && !"virtual".equals(resolutionThreadType)) {
+                    throw new MojoExecutionException("Unknown resolution thread type '" + resolutionThreadType + "'!");
+                }
+                resolutionExecutor.configure("virtual".equals(resolutionThreadType), resolutionThreads, resolutionQueueSize, resolutionThreadKeepAlive);
+                projectCache = reactorCache.getProjectCache();
+                missingArtifactCache = reactorCache.getMissingArtifactCache();
+                repositoryLookup = new RepositoryLookup(mavenProjectBuilder, artifactResolver, artifactMetadataSource, localRepository, remoteRepositories,
+                    localRepositoryFirst, offline, missingArtifactCache, metrics);
+                if (missingArtifactTtl > 0) {
+                    missingArtifactCache.load(getMissingPomsFile(), TimeUnit.MINUTES.toMillis(missingArtifactTtl));
+                }
 
+                final long treeStart = metrics.start();
                 final DependencyNode node = treeBuilder.buildDependencyTree(project, localRepository, artifactFactory, artifactMetadataSource, null, artifactCollector);
+                metrics.stop(RunMetrics.PHASE_DEPENDENCY_TREE, treeStart);
+                dependencyTree = node;
+
+                setupResolutionEngine(node);
 
                 for (final Iterator dependencyIt = node.iterator(); dependencyIt.hasNext(); ) {
                     final DependencyNode dependency = (DependencyNode) dependencyIt.next();
@@ -304,7 +553,18 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
                 }
 
                 LOG.debug("Starting {} mojo run!", this.getClass().getSimpleName());
-                doExecute();
+                try {
+                    doExecute();
+                }
+                finally {
+                    metrics.finish();
+                    logRunSummary();
+                    if (missingArtifactTtl > 0) {
+                        missingArtifactCache.store(getMissingPomsFile(), TimeUnit.MINUTES.toMillis(missingArtifactTtl));
+                    }
+                }
+
+                logStatistics();
             }
         }
         catch (MojoExecutionException me) {
@@ -317,7 +577,6 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
             throw new MojoExecutionException("While running mojo: ", e);
         }
         finally {
-            executorService.shutdownNow();
             LOG.debug("Ended {} mojo run!", this.getClass().getSimpleName());
             MavenLogAppender.endPluginLog(this);
         }
@@ -328,6 +587,107 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      */
     protected abstract void doExecute() throws Exception;
 
+    /**
+     * Reports the timers and counters of this run and writes them to the metrics file. Also called if the run failed.
+     */
+    private void logRunSummary()
+    {
+        LOG.info("{}", metrics.getSummary());
+
+        if (metricsFile != null) {
+            final File file = getMetricsFile();
+            try {
+                metrics.write(file, metricsFormat, project.getId());
+                LOG.debug("Wrote metrics to {}", file);
+            }
+            catch (IOException ioe) {
+                LOG.warn("Could not write metrics file {}: {}", file, ioe.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the file for the metrics of this module. In a reactor build, a metricsFile outside of the module directory is shared by
+     * all modules, so the artifactId of the module is added to its name (e.g. metrics.prom becomes metrics-core.prom).
+     */
+    private File getMetricsFile()
+    {
+        if (reactorProjects == null || reactorProjects.size() <= 1 || project.getBasedir() == null
+            || metricsFile.getAbsolutePath().startsWith(project.getBasedir().getAbsolutePath() + File.separator)) {
+            return metricsFile;
+        }
+
+        final String name = metricsFile.getName();
+        final int extension = name.lastIndexOf('.');
+        final String moduleName = (extension > 0)
+            ? name.substring(0, extension) + "-" + project.getArtifactId() + name.substring(extension)
+            : name + "-" + project.getArtifactId();
+        return new File(metricsFile.getParentFile(), moduleName);
+    }
+
+    /**
+     * Reports the hit rates of the caches and the use of the resolution threads, which are shared by all modules. The numbers
+     * are reported after every module and include all modules that ran so far. With parallel builds the modules do not end in
+     * reactor order, so there is no reliable "last" module to report them once.
+     */
+    private void logStatistics()
+    {
+        LOG.info("Reactor cache (so far): {}", reactorCache.getStatistics());
+        LOG.info("Resolution executor (so far): {}", resolutionExecutor.getStatistics());
+    }
+
+    /**
+     * Creates the persistent resolution cache if it was requested and clears it if necessary.
+     */
+    private void setupResolutionCache()
+    {
+        if (!(useResolutionCache || clearResolutionCache)) {
+            return;
+        }
+
+        final File directory = getResolutionCacheDirectory();
+        final PersistentResolutionCache cache = new PersistentResolutionCache(directory, artifactFactory);
+
+        if (clearResolutionCache) {
+            LOG.info("Clearing resolution cache in {}", directory);
+            cache.clear();
+        }
+
+        if (useResolutionCache) {
+            LOG.debug("Using resolution cache in {}", directory);
+            resolutionCache = cache;
+        }
+    }
+
+    private File getResolutionCacheDirectory()
+    {
+        return resolutionCacheDirectory != null ? resolutionCacheDirectory : new File(localRepository.getBasedir(), ".cache/dependency-versions-check");
+    }
+
+    private File getMissingPomsFile()
+    {
+        return new File(getResolutionCacheDirectory(), "missing-poms");
+    }
+
+    /**
+     * Sets up the engine that resolves the transitive dependencies.
+     */
+    private void setupResolutionEngine(final DependencyNode rootNode)
+        throws MojoExecutionException
+    {
+        if ("graph".equals(resolutionEngine)) {
+            graphEngine = new GraphResolutionEngine(artifactFactory, artifactMetadataSource, repositoryLookup, projectCache, localRepository, remoteRepositories,
+                isWorkStealing() ? resolutionExecutor : null, metrics);
+        }
+        else if ("tree".equals(resolutionEngine)) {
+            treeEngine = new TreeResolutionEngine(artifactFactory, rootNode, project.getManagedVersionMap());
+        }
+        else if (!"resolver".equals(resolutionEngine)) {
+            throw new MojoExecutionException("Unknown resolution engine '" + resolutionEngine + "'!");
+        }
+        LOG.debug("Using resolution engine '{}'", resolutionEngine);
+    }
+
     /**
      * Loads all resolver definitions and turns them into either direct resolved strategies or patterns to check against.
      */
@@ -345,20 +705,10 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
                     final String[] includes = r.getIncludes();
                     if (!ArrayUtils.isEmpty(includes)) {
                         for (int j = 0; j < includes.length; j++) {
-                            final Strategy oldStrategy = (Strategy) resolverMap.get(includes[j]);
+                            final Strategy oldStrategy = resolverMatcher.add(includes[j], strategy);
                             if (oldStrategy != null) {
                                 LOG.warn("A strategy for {} was already defined: {}", includes[j], oldStrategy.getName());
                             }
-                            if (includes[j].contains("*")) {
-                                // Poor mans regexp escape. Escapes all "." and turns "*" into ".*". Should be good enough
-                                // for most use cases. Pattern.quote() only adds \\Q and \\E to the string and does not metachar
-                                // escaping, so it is useless.
-                                final String pattern = includes[j].replace(".", "\\.").replace("*", ".*");
-                                resolverPatternMap.put(pattern, strategy);
-                            }
-                            else {
-                                resolverMap.put(includes[j], strategy);
-                            }
                         }
                     }
                 }
@@ -372,68 +722,39 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      */
     private Strategy findStrategy(final VersionResolution resolution)
     {
-        final String dependencyName = resolution.getDependencyName();
-        Strategy strategy = (Strategy) resolverMap.get(dependencyName);
+        return (Strategy) resolverMap.getUnchecked(resolution.getDependencyName());
+    }
+
+    private Strategy lookupStrategy(final String dependencyName)
+    {
+        final Strategy strategy = resolverMatcher.match(dependencyName);
         if (strategy != null) {
-            LOG.debug("Found direct match: {}", strategy.getName());
+            LOG.debug("Found match for {}: {}", dependencyName, strategy.getName());
             return strategy;
         }
 
-        // No direct hit. Try just the group
-        final String[] elements = StringUtils.split(dependencyName, ":");
-
-        if (elements.length == 2) {
-            strategy = (Strategy) resolverMap.get(elements[0]);
-
-            if (strategy != null) {
-                LOG.debug("Found group ({}) match: {}", elements[0], strategy.getName());
-
-                resolverMap.put(dependencyName, strategy);
-                return strategy;
-            }
-
-            // Try the wildcards
-            for (Iterator it = resolverPatternMap.entrySet().iterator(); it.hasNext();) {
-                final Map.Entry entry = (Map.Entry) it.next();
-                final String pattern = (String) entry.getKey();
-                final String patternElements[] = StringUtils.split(pattern, ":");
-
-                if (Pattern.matches(patternElements[0], elements[0])) {
-                    // group wildcard match.
-                    if (patternElements.length == 1) {
-                        strategy = (Strategy) entry.getValue();
-                        LOG.debug("Found pattern match ({}) on group ({}) match: {}", new Object[] {patternElements[0], elements[0], strategy.getName()});
-
-                        resolverMap.put(dependencyName, strategy);
-                        return strategy;
-                    }
-                    // group and artifact wildcard match.
-                    else if (Pattern.matches(patternElements[1], elements[1])) {
-                        strategy = (Strategy) entry.getValue();
-                        LOG.debug("Found regexp match ({}) on ({}) match: {}", new Object[] {pattern, dependencyName, strategy.getName()});
-
-                        resolverMap.put(dependencyName, strategy);
-                        return strategy;
-                    }
-                }
-            }
-        }
-
-        strategy = defaultStrategyType;
-        resolverMap.put(dependencyName, strategy);
-        LOG.debug("Using default strategy for {} match: {}", dependencyName, strategy.getName());
-        return strategy;
+        LOG.debug("Using default strategy for {} match: {}", dependencyName, defaultStrategyType.getName());
+        return defaultStrategyType;
     }
 
     /**
-     * Creates a map of all version resolutions used in this project in a given scope. The result is a map from artifactName to a list of version numbers used in the project, based on the element
-     * requesting
-     * the version.
+     * Creates a map of all version resolutions used in this project in a given scope. The result is a sorted map from artifactName to a {@link ResolutionAggregate}
+     * that holds all versions of the artifact used in the project, based on the element requesting the version.
      *
      * If the special scope "null" is used, a superset of all scopes is used (this is used by the check mojo).
      */
     protected Map buildResolutionMap(final String scope)
         throws MojoExecutionException, InvalidDependencyVersionException, ProjectBuildingException, ArtifactResolutionException, ArtifactNotFoundException
+    {
+        return buildResolutionMap(scope, false);
+    }
+
+    /**
+     * Creates a map of all version resolutions like {@link #buildResolutionMap(String)}. If stopAtFirstConflict is true, the resolution stops
+     * as soon as a direct dependency is found to contain a conflict; the map then only contains the dependencies that were resolved until then.
+     */
+    protected Map buildResolutionMap(final String scope, final boolean stopAtFirstConflict)
+        throws MojoExecutionException, InvalidDependencyVersionException, ProjectBuildingException, ArtifactResolutionException, ArtifactNotFoundException
     {
         final String[] visibleScopes = (String[]) VISIBLE_SCOPES.get(scope);
         final String[] transitiveScopes = (String[]) TRANSITIVE_SCOPES.get(scope);
@@ -442,34 +763,36 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
             throw new MojoExecutionException("No valid scopes found for '" + scope + "'");
         }
 
-        // Map from artifactName --> list of resolutions found on the tree
-        final SortedMap resolutionMap = Collections.synchronizedSortedMap(new TreeMap());
-        final List futures = new ArrayList();
+        // Every direct dependency collects its resolutions in its own list, so the workers never share any state. The lists
+        // are merged in the order of the dependencies afterwards, which keeps the result independent of the scheduling.
+        final List resolutionLists = new ArrayList();
         LOG.debug("Using parallel dependency resolution: " + useParallelDependencyResolution);
 
-        for (final Iterator iter = project.getDependencies().iterator(); iter.hasNext();) {
-            final Dependency dependency = (Dependency) iter.next();
+        resolutionCancellation = new Cancellation();
 
-            if (useParallelDependencyResolution) {
-                futures.add(executorService.submit(new Runnable() {
-                    public void run()
+        if (prefetchPoms && useParallelDependencyResolution && treeEngine == null && !pomsPrefetched) {
+            prefetchPoms();
+        }
+
+        if (useParallelDependencyResolution) {
+            final List tasks = new ArrayList();
+            for (final Iterator iter = project.getDependencies().iterator(); iter.hasNext();) {
+                final Dependency dependency = (Dependency) iter.next();
+
+                tasks.add(new Callable() {
+                    public Object call() throws Exception
                     {
-                        try {
-                            updateResolutionMapForDep(visibleScopes, transitiveScopes, resolutionMap, dependency);
-                        }
-                        catch (Exception e) {
-                            Throwables.propagate(e);
+                        final List resolutions = resolveDependency(visibleScopes, transitiveScopes, dependency);
+                        if (stopAtFirstConflict && hasConflict(resolutions)) {
+                            resolutionCancellation.cancel();
                         }
+                        return resolutions;
                     }
-                }));
+                });
             }
-            else {
-                updateResolutionMapForDep(visibleScopes, transitiveScopes, resolutionMap, dependency);
-            }
-        }
-        if (useParallelDependencyResolution) {
+
             try {
-                Futures.allAsList(futures).get();
+                resolutionLists.addAll(resolutionExecutor.invokeAll(tasks, resolutionCancellation));
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -479,16 +802,153 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
                 Throwables.propagate(e);
             }
         }
+        else {
+            for (final Iterator iter = project.getDependencies().iterator(); iter.hasNext() && !resolutionCancellation.isCancelled();) {
+                final List resolutions = resolveDependency(visibleScopes, transitiveScopes, (Dependency) iter.next());
+                if (stopAtFirstConflict && hasConflict(resolutions)) {
+                    resolutionCancellation.cancel();
+                }
+                resolutionLists.add(resolutions);
+            }
+        }
+
+        if (resolutionCancellation.isCancelled()) {
+            LOG.info("Stopped dependency resolution after the first conflict, {} of {} direct dependencies were checked.",
+                resolutionLists.size(), project.getDependencies().size());
+        }
+
+        // Map from artifactName --> aggregate of the resolutions found on the tree
+        final SortedMap resolutionMap = new TreeMap();
+        for (final Iterator listIter = resolutionLists.iterator(); listIter.hasNext();) {
+            for (final Iterator iter = ((List) listIter.next()).iterator(); iter.hasNext();) {
+                addToResolutionMap(resolutionMap, (VersionResolution) iter.next());
+            }
+        }
         return resolutionMap;
     }
 
-    private void updateResolutionMapForDep(String[] visibleScopes, String[] transitiveScopes, SortedMap resolutionMap, Dependency dependency)
+    /**
+     * Writes the aggregates of a resolution map to the report file, if one was configured. Every aggregate is written as soon as it
+     * is reached, so the report never holds a copy of the resolution map. If the resolution was stopped early, the report is marked
+     * as incomplete.
+     */
+    protected void writeReport(final String scope, final Map resolutionMap)
+        throws IOException
+    {
+        if (reportFile == null) {
+            return;
+        }
+
+        final ReportWriter reportWriter = ReportWriter.open(reportFormat, reportFile, project.getId(), scope);
+        final boolean complete = !resolutionCancellation.isCancelled();
+        boolean written = false;
+        try {
+            for (final Iterator it = resolutionMap.values().iterator(); it.hasNext();) {
+                reportWriter.write((ResolutionAggregate) it.next());
+            }
+            reportWriter.close(complete);
+            written = true;
+        }
+        finally {
+            if (!written) {
+                reportWriter.abort();
+            }
+        }
+
+        LOG.info("Wrote {} dependencies ({} with conflicts) to {}",
+            new Object[] {Integer.valueOf(reportWriter.getDependencyCount()), Integer.valueOf(reportWriter.getConflictCount()), reportFile});
+    }
+
+    /**
+     * Loads the poms of all artifacts in the dependency tree of the project, with at most prefetchThreads poms at the same time. This
+     * includes the versions that lost the version mediation, as the transitive dependencies of a direct dependency are resolved in
+     * its own scope. Failures are only logged here; the resolution reports them when it needs the pom.
+     */
+    private void prefetchPoms()
+    {
+        pomsPrefetched = true;
+
+        final Map artifactsByGav = new LinkedHashMap();
+        for (final Iterator it = dependencyTree.iterator(); it.hasNext();) {
+            final DependencyNode node = (DependencyNode) it.next();
+            final Artifact artifact = node.getArtifact();
+            if (node != dependencyTree && artifact.getVersion() != null && !Artifact.SCOPE_SYSTEM.equals(artifact.getScope())) {
+                final String gav = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+                if (!artifactsByGav.containsKey(gav)) {
+                    artifactsByGav.put(gav, artifact);
+                }
+            }
+        }
+
+        if (artifactsByGav.size() > projectCacheSize) {
+            LOG.info("Prefetching {} poms, but only {} are kept in memory; set projectCacheSize to keep all of them.",
+                Integer.valueOf(artifactsByGav.size()), Integer.valueOf(projectCacheSize));
+        }
+
+        final Queue artifacts = new ConcurrentLinkedQueue(artifactsByGav.values());
+        final List tasks = new ArrayList();
+        for (int i = 0; i < Math.min(Math.max(prefetchThreads, 1), artifacts.size()); i++) {
+            tasks.add(new Callable() {
+                public Object call()
+                {
+                    for (Artifact artifact = (Artifact) artifacts.poll(); artifact != null && !Thread.currentThread().isInterrupted(); artifact = (Artifact) artifacts.poll()) {
+                        try {
+                            buildProject(artifact);
+                        }
+                        catch (ProjectBuildingException pbe) {
+                            LOG.debug("Could not prefetch the pom of {}", artifact, pbe);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        final long start = metrics.start();
+        try {
+            resolutionExecutor.invokeAll(tasks, resolutionCancellation);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Throwables.propagate(e);
+        }
+        catch (ExecutionException e) {
+            Throwables.propagate(e.getCause());
+        }
+        finally {
+            metrics.stop(RunMetrics.PHASE_PREFETCH, start);
+        }
+        LOG.debug("Prefetched the poms of {} artifacts", Integer.valueOf(artifactsByGav.size()));
+    }
+
+    private static boolean hasConflict(final List resolutions)
+    {
+        for (Iterator it = resolutions.iterator(); it.hasNext();) {
+            final VersionResolution resolution = (VersionResolution) it.next();
+            if (resolution != null && resolution.isConflict()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWorkStealing()
+    {
+        return useParallelDependencyResolution && workStealingResolution;
+    }
+
+    /**
+     * Returns the resolutions of a direct dependency and all its transitive dependencies.
+     */
+    private List resolveDependency(String[] visibleScopes, String[] transitiveScopes, Dependency dependency)
         throws InvalidDependencyVersionException, ProjectBuildingException, ArtifactResolutionException, ArtifactNotFoundException
     {
+        final List resolutions = new ArrayList();
+
         LOG.debug("Checking direct dependency {}...", dependency);
         if (!isVisible(dependency.getScope(), visibleScopes)) {
             LOG.debug("... in invisible scope, ignoring!");
-            return;
+            return resolutions;
         }
 
         LOG.debug("... visible, resolving");
@@ -509,11 +969,11 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
         }
         else {
             final VersionResolution resolution = resolveVersion(dependency, resolvedArtifact, artifactName, true);
-            addToResolutionMap(resolutionMap, resolution);
+            resolutions.add(resolution);
 
             if (!ArrayUtils.isEmpty(transitiveScopes)) {
 
-                final ArtifactFilter scopeFilter = new ArtifactScopeFilter(transitiveScopes);
+                final ArtifactScopeFilter scopeFilter = new ArtifactScopeFilter(transitiveScopes);
 
                 // List of VersionResolution objects.
                 List transitiveDependencies = null;
@@ -531,13 +991,11 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
 
                 if (transitiveDependencies != null) {
                     LOG.debug("Artifact {} contributes {}", artifactName, transitiveDependencies);
-                    for (Iterator transitiveIt = transitiveDependencies.iterator(); transitiveIt.hasNext();) {
-                        final VersionResolution versionResolution = (VersionResolution) transitiveIt.next();
-                        addToResolutionMap(resolutionMap, versionResolution);
-                    }
+                    resolutions.addAll(transitiveDependencies);
                 }
             }
         }
+        return resolutions;
     }
 
     /**
@@ -554,34 +1012,22 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
     }
 
     /**
-     * Convenience method for a multi map add. Also makes sure that all the actual versions line up.
+     * Adds a resolution to the aggregate of its dependency. Also makes sure that all the actual versions line up.
      */
     private void addToResolutionMap(final Map resolutionMap, final VersionResolution resolution)
     {
-        Lock lock = (Lock) resolutionMapLocks.get(resolution.getDependencyName());
-        // lock to protect mutation on the list per dependency as this can potentially run in multiple threads
-        lock.lock();
-        try {
-            List resolutions = (List) resolutionMap.get(resolution.getDependencyName());
-            if (resolutions == null) {
-                resolutions = new ArrayList();
-                resolutionMap.put(resolution.getDependencyName(), resolutions);
-            }
-
-            for (Iterator it = resolutions.iterator(); it.hasNext();) {
-                final VersionResolution existingResolution = (VersionResolution) it.next();
-                // TODO: It might be reasonable to fail the build in this case. However, I have yet to see
-                // this message... :-)
-                if (!existingResolution.getActualVersion().equals(resolution.getActualVersion())) {
-                    LOG.warn("Dependency '{} expects version '{}' but '{}' already resolved to '{}'!",
-                        new Object[] {resolution.getDependencyName(), resolution.getActualVersion(), existingResolution.getDependencyName(), existingResolution.getActualVersion()});
-                }
-            }
-            LOG.debug("Adding resolution: {}", resolution);
-            resolutions.add(resolution);
+        ResolutionAggregate aggregate = (ResolutionAggregate) resolutionMap.get(resolution.getDependencyName());
+        if (aggregate == null) {
+            aggregate = new ResolutionAggregate(resolution.getDependencyName());
+            resolutionMap.put(resolution.getDependencyName(), aggregate);
         }
-        finally {
-            lock.unlock();
+
+        LOG.debug("Adding resolution: {}", resolution);
+        if (!aggregate.add(resolution)) {
+            // TODO: It might be reasonable to fail the build in this case. However, I have yet to see
+            // this message... :-)
+            LOG.warn("Dependency '{} expects version '{}' but '{}' already resolved to '{}'!",
+                new Object[] {resolution.getDependencyName(), resolution.getActualVersion(), aggregate.getDependencyName(), aggregate.getActualVersion()});
         }
     }
 
@@ -618,16 +1064,18 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
             }
 
             // Build internal versions
-            final Version resolvedVersionObj = new Version(resolvedVersion.toString());
-            final Version depVersionObj = new Version(versionRange.toString(), expectedVersion.toString());
+            final Version resolvedVersionObj = Version.of(resolvedVersion.toString());
+            final Version depVersionObj = Version.of(versionRange.toString(), expectedVersion.toString());
 
             resolution = new VersionResolution(artifactName, artifactName, depVersionObj, resolvedVersionObj, directArtifact);
+            metrics.increment(RunMetrics.COUNTER_RESOLUTIONS);
 
             if (!isExcluded(artifact, depVersionObj, resolvedVersionObj)) {
                 final Strategy strategy = findStrategy(resolution);
 
-                if (!(versionRange.containsVersion(resolvedVersion) && strategy.isCompatible(resolvedVersionObj, depVersionObj))) {
+                if (!(versionRange.containsVersion(resolvedVersion) && isCompatible(strategy, resolvedVersionObj, depVersionObj))) {
                     resolution.setConflict(true);
+                    metrics.increment(RunMetrics.COUNTER_CONFLICTS);
                 }
             }
         }
@@ -644,13 +1092,13 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
      * Resolve all transitive dependencies relative to a given dependency, based off the artifact given. A scope filter can be added which limits the
      * results to the scopes present in that filter.
      */
-    private List resolveTransitiveVersions(final Dependency dependency, final Artifact artifact, final String artifactName, final ArtifactFilter scopeFilter)
+    private List resolveTransitiveVersions(final Dependency dependency, final Artifact artifact, final String artifactName, final ArtifactScopeFilter scopeFilter)
         throws InvalidDependencyVersionException, ArtifactResolutionException, ArtifactNotFoundException, ProjectBuildingException
     {
         ArtifactFilter exclusionFilter = null;
+        final List exclusions = new ArrayList();
 
         if (!CollectionUtils.isEmpty(dependency.getExclusions())) {
-            final List exclusions = new ArrayList();
             for (Iterator j = dependency.getExclusions().iterator(); j.hasNext();) {
                 final Exclusion e = (Exclusion) j.next();
                 exclusions.add(e.getGroupId() + ":" + e.getArtifactId());
@@ -671,17 +1119,158 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
             filter = scopeFilter;
         }
 
-        final Collection dependenciesToCheck = resolveDependenciesInItsOwnScope(artifact, filter);
+        if (treeEngine != null) {
+            // The tree reflects this project only (e.g. its dependency management), so the result is never cached.
+            final long treeStart = metrics.start();
+            final Set dependenciesFromTree = treeEngine.resolve(artifact, filter);
+            metrics.stop(RunMetrics.PHASE_RESOLVE, treeStart);
+            if (dependenciesFromTree != null) {
+                return resolveTransitiveVersions(dependency, dependenciesFromTree, artifactName, scopeFilter);
+            }
+            LOG.debug("Falling back to the artifact resolver for {}", artifactName);
+        }
+
+        // SNAPSHOT poms can change at any time, so they are never cached.
+        final String cacheKey = artifact.isSnapshot() ? null : getResolutionCacheKey(artifact, scopeFilter, exclusions);
+
+        Set dependenciesToCheck = (cacheKey == null) ? null : reactorCache.getTransitiveClosure(cacheKey);
+
+        if (dependenciesToCheck == null && cacheKey != null && resolutionCache != null) {
+            dependenciesToCheck = resolutionCache.get(cacheKey);
+            LOG.debug("Resolution cache {} for {}", (dependenciesToCheck == null ? "miss" : "hit"), cacheKey);
+
+            if (dependenciesToCheck != null) {
+                reactorCache.putTransitiveClosure(cacheKey, dependenciesToCheck);
+            }
+        }
+
+        if (dependenciesToCheck != null) {
+            metrics.increment(RunMetrics.COUNTER_CACHE_HITS);
+        }
+        else if (cacheKey == null) {
+            dependenciesToCheck = resolveTransitiveClosure(artifact, filter, null);
+        }
+        else {
+            // Resolving this hull failed before, so it would only fail again.
+            final AbstractArtifactResolutionException failure = missingArtifactCache.getClosureFailure(cacheKey);
+            if (failure instanceof ArtifactResolutionException) {
+                throw (ArtifactResolutionException) failure;
+            }
+            if (failure instanceof ArtifactNotFoundException) {
+                throw (ArtifactNotFoundException) failure;
+            }
+
+            // Other threads may be resolving the same artifact right now; only one of them does the work.
+            try {
+                dependenciesToCheck = reactorCache.loadTransitiveClosure(cacheKey, new Callable() {
+                    public Object call() throws Exception
+                    {
+                        return resolveTransitiveClosure(artifact, filter, cacheKey);
+                    }
+                }, metrics);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof ArtifactResolutionException || e.getCause() instanceof ArtifactNotFoundException) {
+                    missingArtifactCache.putClosureFailure(cacheKey, (AbstractArtifactResolutionException) e.getCause(), resolutionCancellation);
+                }
+                Throwables.propagateIfInstanceOf(e.getCause(), InvalidDependencyVersionException.class);
+                Throwables.propagateIfInstanceOf(e.getCause(), ArtifactResolutionException.class);
+                Throwables.propagateIfInstanceOf(e.getCause(), ArtifactNotFoundException.class);
+                Throwables.propagateIfInstanceOf(e.getCause(), ProjectBuildingException.class);
+                throw Throwables.propagate(e.getCause());
+            }
+        }
 
         return resolveTransitiveVersions(dependency, dependenciesToCheck, artifactName, scopeFilter);
     }
 
+    /**
+     * Resolves the transitive hull of an artifact with the configured engine. If a cache key is given, the result is also stored in the persistent resolution cache.
+     */
+    private Set resolveTransitiveClosure(final Artifact artifact, final ArtifactFilter filter, final String cacheKey)
+        throws InvalidDependencyVersionException, ArtifactResolutionException, ArtifactNotFoundException, ProjectBuildingException
+    {
+        final Set dependenciesToCheck;
+        if (graphEngine != null) {
+            final long start = metrics.start();
+            dependenciesToCheck = graphEngine.resolve(artifact, filter, resolutionCancellation);
+            metrics.stop(RunMetrics.PHASE_RESOLVE, start);
+        }
+        else {
+            dependenciesToCheck = resolveDependenciesInItsOwnScope(artifact, filter);
+        }
+        metrics.add(RunMetrics.COUNTER_ARTIFACTS_RESOLVED, dependenciesToCheck.size());
+
+        if (cacheKey != null && resolutionCache != null) {
+            resolutionCache.put(cacheKey, dependenciesToCheck);
+        }
+        return dependenciesToCheck;
+    }
+
+    /**
+     * Returns the key for the reactor and the persistent resolution cache. The transitive hull of an artifact depends only on its pom (which is the same for all
+     * types and classifiers), the scopes and the exclusions.
+     */
+    private String getResolutionCacheKey(final Artifact artifact, final ArtifactScopeFilter scopeFilter, final List exclusions)
+    {
+        final List sortedExclusions = new ArrayList(exclusions);
+        Collections.sort(sortedExclusions);
+
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion()
+            + "|" + StringUtils.join(scopeFilter.getScopes(), ",")
+            + "|" + StringUtils.join(sortedExclusions, ",")
+            + (graphEngine != null ? "|" + resolutionEngine : "");
+    }
+
     /**
      * Resolve all transitive dependencies relative to a given dependency, based off the list of artifacts given. A scope filter can be added which limits the
      * results to the scopes present in that filter.
      */
     private List resolveTransitiveVersions(final Dependency dependency, final Collection dependenciesToCheck, final String artifactName, final ArtifactFilter scopeFilter)
-        throws InvalidDependencyVersionException, ArtifactResolutionException, ArtifactNotFoundException, ProjectBuildingException
+        throws OverConstrainedVersionException
+    {
+        if (!isWorkStealing() || dependenciesToCheck.size() <= TRANSITIVE_CHECK_BATCH_SIZE) {
+            return checkTransitiveVersions(dependenciesToCheck, artifactName, scopeFilter);
+        }
+
+        final List tasks = new ArrayList();
+        final List batches = Lists.partition(new ArrayList(dependenciesToCheck), TRANSITIVE_CHECK_BATCH_SIZE);
+        for (Iterator it = batches.iterator(); it.hasNext();) {
+            final List batch = (List) it.next();
+            tasks.add(new Callable() {
+                public Object call() throws OverConstrainedVersionException
+                {
+                    return checkTransitiveVersions(batch, artifactName, scopeFilter);
+                }
+            });
+        }
+
+        final List resolutions = new ArrayList();
+        try {
+            for (Iterator it = resolutionExecutor.invokeAll(tasks, resolutionCancellation).iterator(); it.hasNext();) {
+                resolutions.addAll((List) it.next());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+        catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), OverConstrainedVersionException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+        return resolutions;
+    }
+
+    /**
+     * Checks the versions of the given transitive dependencies against the versions resolved for the project.
+     */
+    private List checkTransitiveVersions(final Collection dependenciesToCheck, final String artifactName, final ArtifactFilter scopeFilter)
+        throws OverConstrainedVersionException
     {
         final List resolutions = new ArrayList();
 
@@ -722,6 +1311,7 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
                 final VersionResolution resolution = new VersionResolution(artifactName, artifactToCheckName, versionToCheck, resolvedVersion, false);
 
                 resolutions.add(resolution);
+                metrics.increment(RunMetrics.COUNTER_RESOLUTIONS);
 
                 // we have an error if
                 // - if resolved dependency has a lower version or different qualifier than the stated one of the current transitive dependency
@@ -732,11 +1322,12 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
 
                 final Strategy strategy = findStrategy(resolution);
                 if (!isExcluded(resolvedDependency, versionToCheck, resolvedVersion)) {
-                    if (!strategy.isCompatible(resolvedVersion, versionToCheck)) {
+                    if (!isCompatible(strategy, resolvedVersion, versionToCheck)) {
                         resolution.setConflict(true);
+                        metrics.increment(RunMetrics.COUNTER_CONFLICTS);
                     }
                 }
-                else if (warnIfMajorVersionIsHigher && !strategy.isCompatible(resolvedVersion, versionToCheck)) {
+                else if (warnIfMajorVersionIsHigher && !isCompatible(strategy, resolvedVersion, versionToCheck)) {
                     LOG.warn("Artifact {} depends on {} at an incompatible version ({}) than the current project ({})!",
                         new Object[] {artifactName, artifactToCheckName, dependencyArtifactToCheck.getVersion(), resolvedDependency.getVersion()});
                 }
@@ -795,15 +1386,13 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
             filter,
             null);
 
-        ArtifactResolutionResult result = artifactResolver.resolveTransitively(dependencyArtifacts,
-            project.getArtifact(),
-            Collections.EMPTY_MAP,
-            localRepository,
-            remoteRepositories,
-            artifactMetadataSource,
-            new ArtifactOptionalFilter(includeOptional));
-
-        return result.getArtifacts();
+        final long start = metrics.start();
+        try {
+            return repositoryLookup.resolveTransitively(dependencyArtifacts, project.getArtifact(), new ArtifactOptionalFilter(includeOptional));
+        }
+        finally {
+            metrics.stop(RunMetrics.PHASE_RESOLVE, start);
+        }
     }
 
     /**
@@ -816,7 +1405,7 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
     private Set resolveDependenciesInItsOwnScope(final Artifact artifact, final ArtifactFilter filter)
         throws InvalidDependencyVersionException, ArtifactResolutionException, ArtifactNotFoundException, ProjectBuildingException
     {
-        MavenProject projectForArtifact = mavenProjectBuilder.buildFromRepository(artifact, remoteRepositories, localRepository);
+        final MavenProject projectForArtifact = buildProject(artifact);
 
         // "false" == do not include any optional dependencies from here. As these dependencies are off an artifact that is already a dependency, this
         // needs to ignore all optional deps. This avoids downloading poms that might not even exist and should not be part of the dependency
@@ -824,6 +1413,28 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
         return resolveDependenciesInItsOwnScope(projectForArtifact, filter, false);
     }
 
+    /**
+     * Returns the project for the pom of an artifact. Every pom is only built once per build.
+     */
+    private MavenProject buildProject(final Artifact artifact)
+        throws ProjectBuildingException
+    {
+        return projectCache.get(artifact, new Callable() {
+            public Object call() throws ProjectBuildingException
+            {
+                return repositoryLookup.buildProject(artifact);
+            }
+        }, resolutionCancellation, metrics);
+    }
+
+    /**
+     * Returns whether the resolved version can replace the expected version. Every decision is only made once per build.
+     */
+    private boolean isCompatible(final Strategy strategy, final Version resolvedVersion, final Version expectedVersion)
+    {
+        return reactorCache.getCompatibilityCache().isCompatible(strategy, resolvedVersion, expectedVersion, metrics);
+    }
+
     /**
      * Return a version object for an Artifact.
      */
@@ -833,10 +1444,10 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
 
         if (artifact != null) {
             if ((artifact.getVersionRange() != null) && (artifact.getSelectedVersion() != null)) {
-                version = new Version(artifact.getVersionRange().toString(), artifact.getSelectedVersion().toString());
+                version = Version.of(artifact.getVersionRange().toString(), artifact.getSelectedVersion().toString());
             }
             else {
-                version = new Version(artifact.getVersion());
+                version = Version.of(artifact.getVersion());
             }
         }
         return version;
@@ -875,7 +1486,8 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
     }
 
     /**
-     * Reports an exception thrown by the resolution process.
+     * Reports an exception thrown by the resolution process. Every missing artifact is only reported once per build, no matter how many
+     * dependencies pull it in.
      */
     private void logArtifactResolutionException(AbstractArtifactResolutionException ex)
     {
@@ -885,16 +1497,19 @@ public abstract class AbstractDependencyVersionsMojo extends AbstractMojo
 
             for (Iterator iter = multiEx.getMissingArtifacts().iterator(); iter.hasNext();) {
                 Artifact artifact = (Artifact) iter.next();
-                builder.append(getQualifiedName(artifact));
-
-                if (iter.hasNext()) {
-                    builder.append(", ");
+                if (missingArtifactCache.markReported(artifact)) {
+                    if (builder.length() > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(getQualifiedName(artifact));
                 }
             }
-            LOG.warn("Could not find artifacts '{}'", builder);
+            if (builder.length() > 0) {
+                LOG.warn("Could not find artifacts '{}'", builder);
+            }
         }
-        else {
-            LOG.warn("Could not find artifact '{}'", getQualifiedName(ex.getArtifact()));
+        else if (ex.getArtifact() == null || missingArtifactCache.markReported(ex.getArtifact())) {
+            LOG.warn("Could not find artifact '{}'", ex.getArtifact() == null ? ex.getMessage() : getQualifiedName(ex.getArtifact()));
         }
         LOG.debug("Error:", ex);
     }
@@ -16,20 +16,26 @@
 
 package com.ning.maven.plugins.dependencyversionscheck;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
-import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
 import org.apache.maven.plugin.MojoFailureException;
 
+import com.ning.maven.plugins.dependencyversionscheck.cache.Fingerprint;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
 import com.ning.maven.plugins.dependencyversionscheck.version.Version;
-import com.ning.maven.plugins.dependencyversionscheck.version.VersionResolution;
 
 /**
  * Checks dependency versions.
@@ -48,111 +54,192 @@ public class DependencyVersionsCheckMojo extends AbstractDependencyVersionsMojo
      */
     protected boolean failBuildInCaseOfConflict;
 
+    /**
+     * Whether to stop resolving dependencies as soon as the first conflict was found. Outstanding resolution tasks are
+     * cancelled and only the conflicts found until then are reported. Only used if the build fails in case of a conflict.
+     *
+     * @parameter expression="${failFast}" default-value="false"
+     */
+    protected boolean failFast;
+
+    /**
+     * Whether to skip the check if none of its inputs changed since the last check without conflicts. The inputs are the
+     * dependencies and the dependency management of the project, the resolved dependencies, the resolvers, the exceptions
+     * and the options that influence the result.
+     *
+     * @parameter expression="${skipIfUnchanged}" default-value="false"
+     */
+    protected boolean skipIfUnchanged;
+
+    /**
+     * Whether to skip the check if nothing changed, even though a SNAPSHOT dependency is used. The pom of a SNAPSHOT can
+     * change without any change to the project, so by default the check always runs if a SNAPSHOT is used.
+     *
+     * @parameter expression="${skipIfUnchangedWithSnapshots}" default-value="false"
+     */
+    protected boolean skipIfUnchangedWithSnapshots;
+
+    /**
+     * The file that holds the fingerprint of the last check without conflicts.
+     *
+     * @parameter expression="${fingerprintFile}" default-value="${project.build.directory}/dependency-versions-check.fingerprint"
+     */
+    protected File fingerprintFile;
+
+    /**
+     * The version of this plugin, part of the fingerprint.
+     *
+     * @parameter expression="${plugin.version}"
+     * @readonly
+     */
+    protected String pluginVersion;
 
     protected void doExecute() throws Exception
     {
+        final Fingerprint fingerprint = skipIfUnchanged ? createFingerprint() : null;
+
+        if (fingerprint != null && fingerprint.matches(fingerprintFile)) {
+            LOG.info("Dependencies unchanged since the last check, skipping.");
+            return;
+        }
+
         LOG.info("Checking dependency versions");
 
         // Use the special scope "null" to check a transitive hull of all scopes.
         // See the definitions of TRANSITIVE_SCOPE and VISIBLE_SCOPE in
         // AbstractDependencyVersionsMojo for details.
-        final Map resolutionMap = buildResolutionMap(null);
+        final Map resolutionMap = buildResolutionMap(null, failBuildInCaseOfConflict && failFast);
+
+        // Remove the old fingerprint first, so that a failing check is never skipped.
+        Fingerprint.remove(fingerprintFile);
 
-        reportConflicts(resolutionMap);
+        final long reportStart = metrics.start();
+        try {
+            writeReport(null, resolutionMap);
+
+            if (reportConflicts(resolutionMap) == 0 && fingerprint != null) {
+                fingerprint.store(fingerprintFile);
+            }
+        }
+        finally {
+            metrics.stop(RunMetrics.PHASE_REPORT, reportStart);
+        }
     }
 
-    private void reportConflicts(Map resolutionMap) throws MojoFailureException
+    /**
+     * Returns the fingerprint of all inputs of the check or null if the check can not be skipped because a SNAPSHOT is used.
+     */
+    private Fingerprint createFingerprint()
     {
-        Map resolutionsByDependencyName = new HashMap();
-        Map resolvedVersionsByDependencyName = new HashMap();
-        Set conflictedArtifacts = new TreeSet();
-        Map expectedVersionsByDependencyName = new HashMap();
-        Set explicitDependencyNames = new HashSet();
-
-        // we're organizing the resolutions in a specific way to simplify the output:
-        // dependency -> ( expected version -> dependent )
-        for (Iterator iter = resolutionMap.entrySet().iterator(); iter.hasNext();) {
-            final Map.Entry entry = (Map.Entry) iter.next();
-            List resolutions = (List) entry.getValue();
-            if (CollectionUtils.isEmpty(resolutions)) {
-                LOG.warn("No resolutions found for {}, skipping!", (String) entry.getKey());
+        final Fingerprint fingerprint = new Fingerprint();
+
+        fingerprint.add("plugin", pluginVersion);
+        fingerprint.add("defaultStrategy", defaultStrategy);
+        fingerprint.add("warnIfMajorVersionIsHigher", Boolean.valueOf(warnIfMajorVersionIsHigher));
+        fingerprint.add("failBuildInCaseOfConflict", Boolean.valueOf(failBuildInCaseOfConflict));
+        fingerprint.add("resolutionEngine", resolutionEngine);
+        fingerprint.add("report", reportFile == null ? null : reportFile.getAbsolutePath() + " " + reportFormat);
+
+        // Dependencies are added in the order of the pom, which decides the version mediation.
+        for (Iterator it = project.getDependencies().iterator(); it.hasNext();) {
+            fingerprint.add("dependency", describe((Dependency) it.next()));
+        }
+        if (project.getDependencyManagement() != null) {
+            for (Iterator it = project.getDependencyManagement().getDependencies().iterator(); it.hasNext();) {
+                fingerprint.add("managed", describe((Dependency) it.next()));
             }
+        }
 
-            for (Iterator resolutionIt = resolutions.iterator(); resolutionIt.hasNext();) {
-                final VersionResolution resolution = (VersionResolution) resolutionIt.next();
-
-                resolvedVersionsByDependencyName.put(resolution.getDependencyName(), resolution.getActualVersion());
-
-                if (resolution.isDirectDependency()) {
-                    expectedVersionsByDependencyName.put(resolution.getDependencyName(), resolution.getExpectedVersion());
-                    explicitDependencyNames.add(resolution.getDependencyName());
-                }
-                else {
-                    Map resolutionsByExpectedVersion = (Map) resolutionsByDependencyName.get(resolution.getDependencyName());
-
-                    if (resolutionsByExpectedVersion == null) {
-                        resolutionsByExpectedVersion = new TreeMap();
-                        resolutionsByDependencyName.put(resolution.getDependencyName(), resolutionsByExpectedVersion);
-                    }
+        if (resolvers != null) {
+            for (int i = 0; i < resolvers.length; i++) {
+                fingerprint.add("resolver", resolvers[i].getId() + " " + resolvers[i].getStrategyName() + " " + StringUtils.join(resolvers[i].getIncludes(), ","));
+            }
+        }
+        if (exceptions != null) {
+            for (int i = 0; i < exceptions.length; i++) {
+                fingerprint.add("exception", exceptions[i]);
+            }
+        }
 
-                    Set resolutionsByDependentName = (Set) resolutionsByExpectedVersion.get(resolution.getExpectedVersion());
+        final SortedMap sortedDependencies = new TreeMap(resolvedDependenciesByName);
+        for (Iterator it = sortedDependencies.values().iterator(); it.hasNext();) {
+            final Artifact artifact = (Artifact) it.next();
+            if (artifact.isSnapshot() && !skipIfUnchangedWithSnapshots) {
+                LOG.debug("{} is a SNAPSHOT, the check can not be skipped.", artifact);
+                return null;
+            }
+            fingerprint.add("resolved", artifact.getId() + " " + artifact.getScope() + " " + artifact.isOptional());
+        }
 
-                    if (resolutionsByDependentName == null) {
-                        resolutionsByDependentName = new TreeSet();
-                        resolutionsByExpectedVersion.put(resolution.getExpectedVersion(), resolutionsByDependentName);
-                    }
+        return fingerprint;
+    }
 
-                    resolutionsByDependentName.add(resolution.getDependentName());
-                }
-                if (resolution.isConflict()) {
-                    conflictedArtifacts.add(resolution.getDependencyName());
-                }
+    private static String describe(final Dependency dependency)
+    {
+        final List exclusions = new ArrayList();
+        if (dependency.getExclusions() != null) {
+            for (Iterator it = dependency.getExclusions().iterator(); it.hasNext();) {
+                final Exclusion exclusion = (Exclusion) it.next();
+                exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
             }
+            Collections.sort(exclusions);
         }
 
-        // we log direct dependencies first
-        for (Iterator explicitDependencyIter = explicitDependencyNames.iterator(); explicitDependencyIter.hasNext();) {
-            String artifactName = (String) explicitDependencyIter.next();
+        return dependency.getManagementKey() + ":" + StringUtils.defaultString(dependency.getClassifier())
+            + " " + dependency.getVersion()
+            + " " + dependency.getScope()
+            + " " + dependency.isOptional()
+            + " " + StringUtils.join(exclusions, ",");
+    }
+
+    /**
+     * Reports all conflicts and returns the number of dependencies with conflicts.
+     */
+    private int reportConflicts(Map resolutionMap) throws MojoFailureException
+    {
+        final List conflictedAggregates = new ArrayList();
 
-            if (conflictedArtifacts.contains(artifactName)) {
-                Map resolutionsForArtifact = (Map) resolutionsByDependencyName.get(artifactName);
-                Version expectedVersion = (Version) expectedVersionsByDependencyName.get(artifactName);
-                Version resolvedVersion = (Version) resolvedVersionsByDependencyName.get(artifactName);
+        // we log direct dependencies first
+        for (Iterator iter = resolutionMap.values().iterator(); iter.hasNext();) {
+            final ResolutionAggregate aggregate = (ResolutionAggregate) iter.next();
 
-                logResolutionsForConflict("Found a problem with the direct dependency " + artifactName + " of the current project\n  Expected version is " + expectedVersion.getSelectedVersion(),
-                    resolutionsForArtifact,
-                    resolvedVersion);
+            if (aggregate.isConflict()) {
+                if (aggregate.isDirectDependency()) {
+                    logResolutionsForConflict("Found a problem with the direct dependency " + aggregate.getDependencyName() + " of the current project\n  Expected version is " + aggregate.getDirectExpectedVersion().getSelectedVersion(),
+                        aggregate);
+                }
+                conflictedAggregates.add(aggregate);
             }
         }
-        for (Iterator conflictedArtifactsIter = conflictedArtifacts.iterator(); conflictedArtifactsIter.hasNext();) {
-            String conflictedArtifactName = (String) conflictedArtifactsIter.next();
-
-            if (!explicitDependencyNames.contains(conflictedArtifactName)) {
-                Map resolutionsForArtifact = (Map) resolutionsByDependencyName.get(conflictedArtifactName);
-                Version resolvedVersion = (Version) resolvedVersionsByDependencyName.get(conflictedArtifactName);
+        for (Iterator conflictedIter = conflictedAggregates.iterator(); conflictedIter.hasNext();) {
+            final ResolutionAggregate aggregate = (ResolutionAggregate) conflictedIter.next();
 
-                logResolutionsForConflict("Found a problem with the dependency " + conflictedArtifactName,
-                    resolutionsForArtifact,
-                    resolvedVersion);
+            if (!aggregate.isDirectDependency()) {
+                logResolutionsForConflict("Found a problem with the dependency " + aggregate.getDependencyName(), aggregate);
             }
         }
-        if (failBuildInCaseOfConflict && !conflictedArtifacts.isEmpty()) {
+        if (failBuildInCaseOfConflict && !conflictedAggregates.isEmpty()) {
             throw new MojoFailureException("Found dependency version conflicts");
         }
+        return conflictedAggregates.size();
     }
 
     protected void logResolutionsForConflict(String mainMessage,
-        Map resolutionsForArtifact,
-        Version resolvedVersion)
+        ResolutionAggregate aggregate)
     {
         StringBuilder msgBuilder = new StringBuilder(mainMessage);
 
         msgBuilder.append("\n  Resolved version is ");
-        msgBuilder.append(resolvedVersion.getSelectedVersion());
-        for (Iterator expectedVersionIter = resolutionsForArtifact.entrySet().iterator(); expectedVersionIter.hasNext();) {
-            Map.Entry expectedVersionEntry = (Map.Entry) expectedVersionIter.next();
-            Version expectedVersion = (Version) expectedVersionEntry.getKey();
-            Set dependents = (Set) expectedVersionEntry.getValue();
+        msgBuilder.append(aggregate.getActualVersion().getSelectedVersion());
+        for (Iterator expectationIter = aggregate.getExpectations().values().iterator(); expectationIter.hasNext();) {
+            final ResolutionAggregate.Expectation expectation = (ResolutionAggregate.Expectation) expectationIter.next();
+            final Version expectedVersion = expectation.getExpectedVersion();
+            final Set dependents = expectation.getDependents();
+
+            if (dependents.isEmpty()) {
+                // only expected by the current project, which is reported above.
+                continue;
+            }
 
             msgBuilder.append("\n  Version ");
             msgBuilder.append(expectedVersion.getSelectedVersion());
@@ -17,16 +17,14 @@
 package com.ning.maven.plugins.dependencyversionscheck;
 
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 
-import com.ning.maven.plugins.dependencyversionscheck.version.VersionResolution;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
 
 /**
  * Lists dependency versions in different scopes.
@@ -64,72 +62,53 @@ public class DependencyVersionsListMojo extends AbstractDependencyVersionsMojo
 
         final Map resolutionMap = buildResolutionMap(scope);
 
-        LOG.info("{} dependencies for scope '{}':", (directOnly ? "Direct" : "Transitive"), scope);
+        final long reportStart = metrics.start();
+        try {
+            LOG.info("{} dependencies for scope '{}':", (directOnly ? "Direct" : "Transitive"), scope);
 
-        for (final Iterator it = resolutionMap.entrySet().iterator(); it.hasNext();) {
-            final Map.Entry entry = (Map.Entry) it.next();
-            final String artifactName = (String) entry.getKey();
-            final List resolutions = (List) entry.getValue();
+            for (final Iterator it = resolutionMap.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry entry = (Map.Entry) it.next();
+                final String artifactName = (String) entry.getKey();
+                final ResolutionAggregate aggregate = (ResolutionAggregate) entry.getValue();
 
-            if (CollectionUtils.isEmpty(resolutions)) {
-                LOG.warn("No resolutions for '{}', this should never happen!", artifactName);
-                continue; // for
-            }
-
-            final VersionResolution resolution = (VersionResolution) resolutions.get(0);
-
-            // Map from version to VersionInformation
-            final Map versionMap = new TreeMap();
-
-            boolean foundConflict = false;
-            boolean foundDirectDependency = false;
-
-            for (Iterator resolutionIt = resolutions.iterator(); resolutionIt.hasNext();) {
-                final VersionResolution versionResolution = (VersionResolution) resolutionIt.next();
-                final String expectedVersion = versionResolution.getExpectedVersion().getSelectedVersion();
-
-                VersionInformation versionInformation = (VersionInformation) versionMap.get(expectedVersion);
-                if (versionInformation == null) {
-                    versionInformation = new VersionInformation(expectedVersion);
-                    versionMap.put(expectedVersion, versionInformation);
+                if (conflictsOnly && !aggregate.isConflict()) {
+                    continue; // for;
                 }
 
-                if (versionResolution.isConflict()) {
-                    versionInformation.setConflict(true);
-                    foundConflict = true;
+                if (directOnly && !aggregate.isDirectDependency()) {
+                    continue; // for;
                 }
 
-                if (versionResolution.isDirectDependency()) {
-                    versionInformation.setDirectDependency(true);
-                    foundDirectDependency = true;
+                final StringBuilder result = new StringBuilder(StringUtils.rightPad(artifactName + ": ", maxLen + 2));
+                result.append(aggregate.getDependencyName()).append("-").append(aggregate.getActualVersion().getSelectedVersion());
+                result.append(" (");
+
+                for (Iterator expectationIt = aggregate.getExpectations().values().iterator(); expectationIt.hasNext();) {
+                    final ResolutionAggregate.Expectation expectation = (ResolutionAggregate.Expectation) expectationIt.next();
+
+                    String version = expectation.getExpectedVersion().getSelectedVersion();
+                    if (expectation.isDirectDependency()) {
+                        version = "*" + version + "*";
+                    }
+                    if (expectation.isConflict()) {
+                        version = "!" + version + "!";
+                    }
+                    result.append(version);
+
+                    if (expectationIt.hasNext()) {
+                        result.append(", ");
+                    }
                 }
-            }
-
-            if (conflictsOnly && !foundConflict) {
-                continue; // for;
-            }
-
-            if (directOnly && !foundDirectDependency) {
-                continue; // for;
-            }
-
-            final StringBuilder result = new StringBuilder(StringUtils.rightPad(artifactName + ": ", maxLen + 2));
-            result.append(resolution.getDependencyName()).append("-").append(resolution.getActualVersion().getSelectedVersion());
-            result.append(" (");
 
-            for (Iterator versionIt = versionMap.values().iterator(); versionIt.hasNext();) {
-                VersionInformation versionInformation = (VersionInformation) versionIt.next();
+                result.append(")");
 
-                result.append(versionInformation);
-
-                if (versionIt.hasNext()) {
-                    result.append(", ");
-                }
+                LOG.info(result.toString());
             }
 
-            result.append(")");
-
-            LOG.info(result.toString());
+            writeReport(scope, resolutionMap);
+        }
+        finally {
+            metrics.stop(RunMetrics.PHASE_REPORT, reportStart);
         }
     }
 
@@ -142,40 +121,4 @@ public class DependencyVersionsListMojo extends AbstractDependencyVersionsMojo
             throw new MojoExecutionException("Scope '" + scope + "' is invalid!");
         }
     }
-
-    private static class VersionInformation
-    {
-        private final String version;
-
-        private boolean conflict = false;
-        private boolean directDependency = false;
-
-        private VersionInformation(final String version)
-        {
-            this.version = version;
-        }
-
-        private void setConflict(boolean conflict)
-        {
-            this.conflict = conflict;
-        }
-
-        private void setDirectDependency(boolean directDependency)
-        {
-            this.directDependency = directDependency;
-        }
-
-        public String toString()
-        {
-            String result = version;
-            if (directDependency) {
-                result = "*" + result + "*";
-            }
-            if (conflict) {
-                result = "!" + result + "!";
-            }
-            return result;
-        }
-    }
 }
-
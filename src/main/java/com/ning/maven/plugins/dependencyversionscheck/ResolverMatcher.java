@@ -0,0 +1,185 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.ning.maven.plugins.dependencyversionscheck.strategy.Strategy;
+
+/**
+ * Matches artifact names against the includes of all resolver definitions. All includes are compiled once:
+ *
+ * <ul>
+ * <li>Includes without wildcard are kept in a hash map and match either the full artifact name or its group.</li>
+ * <li>Includes with wildcards are compiled into a pattern and stored in a trie under the literal text in front of their
+ * first wildcard. A lookup walks the trie along the artifact name and only tests the patterns found on the way, so the
+ * cost of a lookup depends on the length of the name, not on the number of includes.</li>
+ * </ul>
+ *
+ * An include without an artifact part ("org.apache*") matches the group only. A wildcard never matches the ":" between
+ * group and artifact. If more than one wildcard include matches, the one that was added first wins.
+ *
+ * This class is not thread safe while includes are added; lookups can run concurrently afterwards.
+ */
+public class ResolverMatcher
+{
+    /** Include without wildcards to strategy. */
+    private final Map exactMatches = new HashMap();
+
+    /** Wildcard include to its rule. */
+    private final Map rulesByInclude = new HashMap();
+
+    private final TrieNode root = new TrieNode();
+
+    /**
+     * Adds an include for a strategy. Returns the strategy that was previously registered for the same include or null.
+     * The new strategy replaces the previous one.
+     */
+    public Strategy add(final String include, final Strategy strategy)
+    {
+        if (!include.contains("*")) {
+            return (Strategy) exactMatches.put(include, strategy);
+        }
+
+        final Rule previous = (Rule) rulesByInclude.get(include);
+        if (previous != null) {
+            final Strategy previousStrategy = previous.strategy;
+            previous.strategy = strategy;
+            return previousStrategy;
+        }
+
+        final String[] elements = StringUtils.split(include, ":");
+        final String groupPattern = elements.length > 0 ? elements[0] : "*";
+        final String artifactPattern = elements.length > 1 ? elements[1] : "*";
+        final String namePattern = groupPattern + ":" + artifactPattern;
+
+        final Rule rule = new Rule(rulesByInclude.size(), include, Pattern.compile(toRegex(namePattern)), strategy);
+        rulesByInclude.put(include, rule);
+
+        TrieNode node = root;
+        final int prefixLength = namePattern.indexOf('*');
+        for (int i = 0; i < prefixLength; i++) {
+            node = node.getOrCreateChild(namePattern.charAt(i));
+        }
+        node.rules.add(rule);
+
+        return null;
+    }
+
+    /**
+     * Returns the strategy for an artifact name or null if no include matches. Names with type or classifier only match
+     * includes without wildcards that list the full name.
+     */
+    public Strategy match(final String dependencyName)
+    {
+        Strategy strategy = (Strategy) exactMatches.get(dependencyName);
+        if (strategy != null) {
+            return strategy;
+        }
+
+        final String[] elements = StringUtils.split(dependencyName, ":");
+        if (elements.length != 2) {
+            return null;
+        }
+
+        strategy = (Strategy) exactMatches.get(elements[0]);
+        if (strategy != null) {
+            return strategy;
+        }
+
+        Rule bestRule = null;
+        TrieNode node = root;
+        for (int i = 0; node != null; i++) {
+            for (Iterator it = node.rules.iterator(); it.hasNext();) {
+                final Rule rule = (Rule) it.next();
+                if ((bestRule == null || rule.index < bestRule.index) && rule.pattern.matcher(dependencyName).matches()) {
+                    bestRule = rule;
+                }
+            }
+            node = (i < dependencyName.length()) ? node.getChild(dependencyName.charAt(i)) : null;
+        }
+
+        return bestRule == null ? null : bestRule.strategy;
+    }
+
+    /**
+     * Turns an include into a regular expression. "*" matches anything but the ":", everything else is taken literally.
+     */
+    private static String toRegex(final String namePattern)
+    {
+        final StringBuilder sb = new StringBuilder();
+        final String[] literals = StringUtils.splitPreserveAllTokens(namePattern, '*');
+        for (int i = 0; i < literals.length; i++) {
+            if (i > 0) {
+                sb.append("[^:]*");
+            }
+            if (literals[i].length() > 0) {
+                sb.append(Pattern.quote(literals[i]));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Rule
+    {
+        private final int index;
+        private final String include;
+        private final Pattern pattern;
+        private Strategy strategy;
+
+        private Rule(final int index, final String include, final Pattern pattern, final Strategy strategy)
+        {
+            this.index = index;
+            this.include = include;
+            this.pattern = pattern;
+            this.strategy = strategy;
+        }
+
+        public String toString()
+        {
+            return include;
+        }
+    }
+
+    private static final class TrieNode
+    {
+        private final Map children = new HashMap();
+        private final List rules = new ArrayList();
+
+        private TrieNode getChild(final char c)
+        {
+            return (TrieNode) children.get(Character.valueOf(c));
+        }
+
+        private TrieNode getOrCreateChild(final char c)
+        {
+            TrieNode child = getChild(c);
+            if (child == null) {
+                child = new TrieNode();
+                children.put(Character.valueOf(c), child);
+            }
+            return child;
+        }
+    }
+}
@@ -52,12 +52,12 @@ public class VersionCheckExcludes
 
     public void setExpectedVersion(String versionStr)
     {
-        this.expectedVersion = new Version(versionStr);
+        this.expectedVersion = Version.of(versionStr);
     }
 
     public void setResolvedVersion(String versionStr)
     {
-        this.resolvedVersion = new Version(versionStr);
+        this.resolvedVersion = Version.of(versionStr);
     }
 
     public boolean check()
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.Strategy;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+/**
+ * Remembers the decisions of {@link Strategy#isCompatible(Version, Version)}. The same pair of versions shows up for
+ * every artifact that depends on it, but every distinct combination of strategy and versions is only evaluated once.
+ * Strategies are compared by identity.
+ *
+ * This class is thread safe.
+ */
+public class CompatibilityCache
+{
+    private final Cache cache;
+
+    public CompatibilityCache(final long maximumSize)
+    {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns whether the resolved version can replace the expected version according to the strategy. Only the time spent in
+     * the strategy is added to the strategy phase of the given metrics, not the time of the lookup.
+     */
+    public boolean isCompatible(final Strategy strategy, final Version resolvedVersion, final Version expectedVersion, final RunMetrics metrics)
+    {
+        try {
+            final Boolean result = (Boolean) cache.get(new Key(strategy, resolvedVersion, expectedVersion), new Callable() {
+                public Object call()
+                {
+                    final long start = metrics.start();
+                    try {
+                        return Boolean.valueOf(strategy.isCompatible(resolvedVersion, expectedVersion));
+                    }
+                    finally {
+                        metrics.stop(RunMetrics.PHASE_STRATEGY, start);
+                    }
+                }
+            });
+            return result.booleanValue();
+        }
+        catch (ExecutionException ee) {
+            throw Throwables.propagate(ee.getCause());
+        }
+        catch (UncheckedExecutionException uee) {
+            throw Throwables.propagate(uee.getCause());
+        }
+    }
+
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+
+    private static final class Key
+    {
+        private final Strategy strategy;
+        private final Version resolvedVersion;
+        private final Version expectedVersion;
+        private final int hashCode;
+
+        private Key(final Strategy strategy, final Version resolvedVersion, final Version expectedVersion)
+        {
+            this.strategy = strategy;
+            this.resolvedVersion = resolvedVersion;
+            this.expectedVersion = expectedVersion;
+            this.hashCode = 31 * (31 * System.identityHashCode(strategy) + resolvedVersion.hashCode()) + expectedVersion.hashCode();
+        }
+
+        public boolean equals(final Object other)
+        {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            final Key castOther = (Key) other;
+            return strategy == castOther.strategy && resolvedVersion.equals(castOther.resolvedVersion) && expectedVersion.equals(castOther.expectedVersion);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
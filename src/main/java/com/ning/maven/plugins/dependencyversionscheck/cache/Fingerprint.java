@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Hashes all inputs of a plugin run into a single value, which can be stored in a file and compared with the value of a
+ * later run. Inputs are added as name/value pairs; callers must add them in a stable order.
+ *
+ * This class is not thread safe.
+ */
+public class Fingerprint
+{
+    private static final Logger LOG = LoggerFactory.getLogger(Fingerprint.class);
+
+    /** Bump this whenever the inputs change. Old fingerprints then never match. */
+    private static final String FORMAT_VERSION = "v2";
+
+    private final Hasher hasher = Hashing.sha256().newHasher();
+    private String hash = null;
+
+    public Fingerprint()
+    {
+        add("format", FORMAT_VERSION);
+    }
+
+    public Fingerprint add(final String name, final Object value)
+    {
+        if (hash != null) {
+            throw new IllegalStateException("Fingerprint was already computed");
+        }
+        putString(name);
+        putString(String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Adds a string with its length, so that no two different lists of inputs hash the same bytes.
+     */
+    private void putString(final String value)
+    {
+        hasher.putInt(value.length()).putString(value, Charsets.UTF_8);
+    }
+
+    public String getHash()
+    {
+        if (hash == null) {
+            hash = hasher.hash().toString();
+        }
+        return hash;
+    }
+
+    /**
+     * Returns true if the given file contains this fingerprint.
+     */
+    public boolean matches(final File file)
+    {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try {
+            return getHash().equals(Files.toString(file, Charsets.UTF_8).trim());
+        }
+        catch (IOException ioe) {
+            LOG.debug("Could not read fingerprint {}", file, ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Writes this fingerprint to the given file.
+     */
+    public void store(final File file)
+    {
+        try {
+            Files.createParentDirs(file);
+            Files.asCharSink(file, Charsets.UTF_8).write(getHash() + "\n");
+        }
+        catch (IOException ioe) {
+            LOG.warn("Could not write fingerprint {}: {}", file, ioe.getMessage());
+        }
+    }
+
+    /**
+     * Removes a stored fingerprint, so that the next run can not be skipped.
+     */
+    public static void remove(final File file)
+    {
+        if (file.isFile() && !file.delete()) {
+            LOG.warn("Could not remove fingerprint {}", file);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+
+/**
+ * Makes sure that concurrent requests for the same key do the work only once. The first request runs its loader, all
+ * requests that arrive while it is running wait for its result (or its failure) instead of running their own loader.
+ * Nothing is kept once a request is finished; remembering results is up to the caches that use this class.
+ *
+ * This class is thread safe.
+ */
+public class InFlightRequests
+{
+    /** Key to the request that currently runs for it. */
+    private final ConcurrentMap requests = new ConcurrentHashMap();
+
+    /**
+     * Returns the result of the given loader, or the result of a request for the same key that is already running. Every
+     * request that waits for another one is counted as coalesced in the given metrics.
+     */
+    public Object get(final Object key, final Callable loader, final RunMetrics metrics)
+        throws ExecutionException, InterruptedException
+    {
+        final FutureTask task = new FutureTask(loader);
+        final FutureTask running = (FutureTask) requests.putIfAbsent(key, task);
+
+        if (running != null) {
+            metrics.increment(RunMetrics.COUNTER_COALESCED);
+            return running.get();
+        }
+
+        try {
+            task.run();
+        }
+        finally {
+            requests.remove(key, task);
+        }
+        // The task is done, so this never blocks.
+        return task.get();
+    }
+}
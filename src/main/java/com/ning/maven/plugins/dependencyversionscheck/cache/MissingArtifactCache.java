@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.MultipleArtifactsNotFoundException;
+import org.apache.maven.project.ProjectBuildingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+
+/**
+ * Remembers what could not be resolved, so that every later request for it fails immediately instead of asking the
+ * repositories (and possibly waiting for a remote timeout) again. Two kinds of failures are kept:
+ *
+ * <ul>
+ * <li>poms that could not be built, keyed by groupId, artifactId and version,</li>
+ * <li>transitive hulls that could not be resolved, keyed like the entries of the reactor cache.</li>
+ * </ul>
+ *
+ * Missing artifacts are only remembered as part of the hull that failed; they are never left out of other resolutions, as
+ * that would make the result depend on the order in which the hulls were resolved. The cache also remembers which
+ * missing artifacts were reported, so that every one of them is reported only once.
+ *
+ * For the local repository first mode, it also remembers which poms could not be found in the local repository alone, so
+ * that later lookups of them go to the remote repositories right away.
+ *
+ * Only failures that show that something does not exist in the repositories are remembered. Failures of lookups that were
+ * interrupted or cancelled, and all other failures (e.g. a repository that could not be reached), are not, as they may go
+ * away on the next try.
+ *
+ * The failures are kept for the whole build. The poms can also be stored in a file, so that later builds skip them until
+ * a time to live has passed. Every line of that file holds the key of a pom and the time it failed. SNAPSHOT poms can be
+ * deployed at any time, so they are never stored.
+ *
+ * This class is thread safe.
+ */
+public class MissingArtifactCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MissingArtifactCache.class);
+
+    private static final char SEPARATOR = '\t';
+
+    /** groupId:artifactId:version to the exception thrown while building the pom. */
+    private final ConcurrentMap pomFailures = new ConcurrentHashMap();
+
+    /** groupId:artifactId:version to the time the pom failed, for poms that failed in this or an earlier build. */
+    private final ConcurrentMap pomFailureTimes = new ConcurrentHashMap();
+
+    /** Transitive hull key to the exception thrown while resolving it. */
+    private final ConcurrentMap closureFailures = new ConcurrentHashMap();
+
+    /** Ids of all artifacts that were already reported as missing. */
+    private final Set reportedArtifacts = Collections.newSetFromMap(new ConcurrentHashMap());
+
+    /** groupId:artifactId:version of all poms that could not be built from the local repository alone. */
+    private final Set localPomMisses = Collections.newSetFromMap(new ConcurrentHashMap());
+
+    /**
+     * Returns the exception for a pom that could not be built or null if the pom is not known to fail.
+     */
+    public ProjectBuildingException getPomFailure(final String key)
+    {
+        final ProjectBuildingException failure = (ProjectBuildingException) pomFailures.get(key);
+        if (failure != null) {
+            return failure;
+        }
+
+        final Long failed = (Long) pomFailureTimes.get(key);
+        if (failed == null) {
+            return null;
+        }
+        return new ProjectBuildingException(key, "The pom of " + key + " could not be built by an earlier build at " + new Date(failed.longValue())
+            + ", not trying again", (Throwable) null);
+    }
+
+    /**
+     * Remembers that a pom could not be built, if the failure shows that the pom or one of its parents does not exist. The
+     * cancellation is the one of the task that built the pom.
+     */
+    public void putPomFailure(final String key, final ProjectBuildingException failure, final Cancellation cancellation)
+    {
+        if (isNotFound(failure, cancellation)) {
+            pomFailures.put(key, failure);
+            pomFailureTimes.put(key, Long.valueOf(System.currentTimeMillis()));
+        }
+        else {
+            LOG.debug("Not remembering the failure of the pom of {}: {}", key, failure.getMessage());
+        }
+    }
+
+    /**
+     * Returns the exception for a transitive hull that could not be resolved or null if the hull is not known to fail.
+     */
+    public AbstractArtifactResolutionException getClosureFailure(final String key)
+    {
+        return (AbstractArtifactResolutionException) closureFailures.get(key);
+    }
+
+    /**
+     * Remembers that a transitive hull could not be resolved, if the failure shows that an artifact of it does not exist. The
+     * cancellation is the one of the task that resolved the hull.
+     */
+    public void putClosureFailure(final String key, final AbstractArtifactResolutionException failure, final Cancellation cancellation)
+    {
+        if (isNotFound(failure, cancellation)) {
+            closureFailures.put(key, failure);
+        }
+        else {
+            LOG.debug("Not remembering the failure of {}: {}", key, failure.getMessage());
+        }
+    }
+
+    /**
+     * Returns true if a failure shows that something does not exist in the repositories. This is the case if any of its causes
+     * is an artifact that was not found, which includes a pom or a parent pom that was not found. Maven 3 reports these with its
+     * own exception of the same name. Failures that happened while the thread was interrupted, that were caused by an interrupt,
+     * or that happened after the tasks were cancelled never count, as the lookup may have been stopped halfway.
+     */
+    static boolean isNotFound(final Throwable failure, final Cancellation cancellation)
+    {
+        if (Thread.currentThread().isInterrupted() || cancellation.isCancelled()) {
+            return false;
+        }
+
+        boolean notFound = false;
+        for (Iterator it = Throwables.getCausalChain(failure).iterator(); it.hasNext();) {
+            final Throwable cause = (Throwable) it.next();
+            if (cause instanceof InterruptedException || cause instanceof InterruptedIOException || cause instanceof ClosedByInterruptException) {
+                return false;
+            }
+            if (cause instanceof ArtifactNotFoundException
+                || cause instanceof MultipleArtifactsNotFoundException
+                || "ArtifactNotFoundException".equals(cause.getClass().getSimpleName())) {
+                notFound = true;
+            }
+        }
+        return notFound;
+    }
+
+    /**
+     * Marks an artifact as reported. Returns false if it was reported before.
+     */
+    public boolean markReported(final Artifact artifact)
+    {
+        return reportedArtifacts.add(getId(artifact));
+    }
+
+    /**
+     * Returns true if the pom of the artifact could not be built from the local repository alone before.
+     */
+    public boolean isPomMissingLocally(final Artifact artifact)
+    {
+        return localPomMisses.contains(getGav(artifact));
+    }
+
+    public void putPomMissingLocally(final Artifact artifact)
+    {
+        localPomMisses.add(getGav(artifact));
+    }
+
+    /**
+     * Reads the poms that failed in earlier builds from a file. Entries older than the given time to live are ignored.
+     */
+    public void load(final File file, final long timeToLiveMillis)
+    {
+        if (!file.isFile()) {
+            return;
+        }
+
+        final long oldest = System.currentTimeMillis() - timeToLiveMillis;
+        try {
+            final List lines = Files.readLines(file, Charsets.UTF_8);
+            for (Iterator it = lines.iterator(); it.hasNext();) {
+                final String[] fields = StringUtils.split((String) it.next(), SEPARATOR);
+                if (fields.length == 2 && Long.parseLong(fields[1]) >= oldest && !isSnapshot(fields[0])) {
+                    pomFailureTimes.putIfAbsent(fields[0], Long.valueOf(fields[1]));
+                }
+            }
+            LOG.debug("Loaded {} missing poms from {}", Integer.valueOf(pomFailureTimes.size()), file);
+        }
+        catch (IOException ioe) {
+            LOG.debug("Could not read missing poms from {}", file, ioe);
+        }
+        catch (NumberFormatException nfe) {
+            LOG.debug("Corrupt missing poms file {}", file, nfe);
+        }
+    }
+
+    /**
+     * Writes all poms that failed in this build or in an earlier build within the time to live to a file, except for SNAPSHOTs.
+     */
+    public void store(final File file, final long timeToLiveMillis)
+    {
+        final long oldest = System.currentTimeMillis() - timeToLiveMillis;
+        final StringBuilder sb = new StringBuilder();
+        for (Iterator it = pomFailureTimes.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry entry = (Map.Entry) it.next();
+            if (((Long) entry.getValue()).longValue() >= oldest && !isSnapshot((String) entry.getKey())) {
+                sb.append(entry.getKey()).append(SEPARATOR).append(entry.getValue()).append('\n');
+            }
+        }
+
+        try {
+            // Write to a temp file first and move it in place afterwards, so that concurrent builds never see a partial file.
+            Files.createParentDirs(file);
+            final File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            Files.asCharSink(tempFile, Charsets.UTF_8).write(sb);
+            if (!tempFile.renameTo(file) && !tempFile.delete()) {
+                LOG.debug("Could not remove {}", tempFile);
+            }
+        }
+        catch (IOException ioe) {
+            LOG.warn("Could not write missing poms to {}: {}", file, ioe.getMessage());
+        }
+    }
+
+    /**
+     * Returns true if the version of a groupId:artifactId:version key is a SNAPSHOT.
+     */
+    private static boolean isSnapshot(final String key)
+    {
+        return ArtifactUtils.isSnapshot(key.substring(key.lastIndexOf(':') + 1));
+    }
+
+    private static String getId(final Artifact artifact)
+    {
+        return artifact.getDependencyConflictId() + ":" + artifact.getVersion();
+    }
+
+    private static String getGav(final Artifact artifact)
+    {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+    }
+}
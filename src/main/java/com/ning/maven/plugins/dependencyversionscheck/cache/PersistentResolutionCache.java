@@ -0,0 +1,216 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Keeps the transitive resolution results of released artifacts on disk, so that they can be reused across builds. Every entry is
+ * stored in its own file, named after the hash of its key. The first line of a file contains the full key to guard against hash
+ * collisions; every following line describes a single artifact.
+ *
+ * Results that contain SNAPSHOT artifacts or version ranges are never stored, as they may resolve differently on the next run.
+ */
+public class PersistentResolutionCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentResolutionCache.class);
+
+    /** Bump this whenever the file format changes. Old entries are then simply ignored. */
+    private static final String FORMAT_VERSION = "v2";
+
+    private static final String KEY_PREFIX = "# " + FORMAT_VERSION + " ";
+
+    private static final char SEPARATOR = '\t';
+
+    private final File directory;
+    private final ArtifactFactory artifactFactory;
+
+    public PersistentResolutionCache(final File directory, final ArtifactFactory artifactFactory)
+    {
+        this.directory = directory;
+        this.artifactFactory = artifactFactory;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Returns the artifacts stored for the given key or null if there is no (valid) entry.
+     */
+    public Set get(final String key)
+    {
+        final File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            final List lines = Files.readLines(file, Charsets.UTF_8);
+            if (lines.isEmpty() || !(KEY_PREFIX + key).equals(lines.get(0))) {
+                LOG.debug("Ignoring stale cache entry {} for {}", file, key);
+                return null;
+            }
+
+            final Set artifacts = new LinkedHashSet();
+            for (Iterator it = lines.listIterator(1); it.hasNext();) {
+                artifacts.add(readArtifact((String) it.next()));
+            }
+            return artifacts;
+        }
+        catch (IOException ioe) {
+            LOG.debug("Could not read cache entry {}", file, ioe);
+        }
+        catch (InvalidVersionSpecificationException ivse) {
+            LOG.debug("Could not parse cache entry {}", file, ivse);
+        }
+        catch (RuntimeException re) {
+            LOG.debug("Corrupt cache entry {}", file, re);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the given artifacts for a key. Returns false if the artifacts were not cacheable.
+     */
+    public boolean put(final String key, final Collection artifacts)
+    {
+        final StringBuilder sb = new StringBuilder(KEY_PREFIX).append(key).append('\n');
+
+        for (Iterator it = artifacts.iterator(); it.hasNext();) {
+            final Artifact artifact = (Artifact) it.next();
+            if (!isCacheable(artifact)) {
+                LOG.debug("Not caching {}, {} may change between builds", key, artifact);
+                return false;
+            }
+            writeArtifact(sb, artifact);
+        }
+
+        final File file = getFile(key);
+        try {
+            // Write to a temp file first and move it in place afterwards, so that concurrent builds never see a partial entry.
+            Files.createParentDirs(file);
+            final File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            Files.asCharSink(tempFile, Charsets.UTF_8).write(sb);
+            if (!tempFile.renameTo(file) && !tempFile.delete()) {
+                LOG.debug("Could not remove {}", tempFile);
+            }
+            return true;
+        }
+        catch (IOException ioe) {
+            LOG.warn("Could not write resolution cache entry {}: {}", file, ioe.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear()
+    {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].isFile() && !files[i].delete()) {
+                    LOG.warn("Could not remove resolution cache entry {}", files[i]);
+                }
+            }
+        }
+    }
+
+    private File getFile(final String key)
+    {
+        return new File(directory, Hashing.sha1().hashString(key, Charsets.UTF_8).toString());
+    }
+
+    private static boolean isCacheable(final Artifact artifact)
+    {
+        if (artifact.getVersion() == null || artifact.isSnapshot()) {
+            return false;
+        }
+        final VersionRange versionRange = artifact.getVersionRange();
+        return versionRange == null || versionRange.getRecommendedVersion() != null;
+    }
+
+    /**
+     * Writes the version range and the version of an artifact. The version is the one the resolver selected, which is not always
+     * the recommended version of the range (e.g. if dependency management or the version mediation changed it).
+     */
+    private static void writeArtifact(final StringBuilder sb, final Artifact artifact)
+    {
+        final VersionRange versionRange = artifact.getVersionRange();
+
+        sb.append(artifact.getGroupId()).append(SEPARATOR)
+            .append(artifact.getArtifactId()).append(SEPARATOR)
+            .append(StringUtils.defaultString(artifact.getType())).append(SEPARATOR)
+            .append(StringUtils.defaultString(artifact.getClassifier())).append(SEPARATOR)
+            .append(StringUtils.defaultString(artifact.getScope())).append(SEPARATOR)
+            .append(artifact.isOptional()).append(SEPARATOR)
+            .append(versionRange == null ? "" : versionRange.toString()).append(SEPARATOR)
+            .append(artifact.getVersion()).append('\n');
+    }
+
+    private Artifact readArtifact(final String line)
+        throws InvalidVersionSpecificationException
+    {
+        final String[] fields = StringUtils.splitPreserveAllTokens(line, SEPARATOR);
+        if (fields.length != 8) {
+            throw new IllegalStateException("Expected 8 fields, got " + fields.length);
+        }
+
+        final String versionSpec = fields[6];
+        final String selectedVersion = fields[7];
+        final VersionRange versionRange = StringUtils.isEmpty(versionSpec) ? VersionRange.createFromVersion(selectedVersion) : VersionRange.createFromVersionSpec(versionSpec);
+
+        final Artifact artifact = artifactFactory.createDependencyArtifact(fields[0],
+            fields[1],
+            versionRange,
+            StringUtils.defaultIfEmpty(fields[2], null),
+            StringUtils.defaultIfEmpty(fields[3], null),
+            StringUtils.defaultIfEmpty(fields[4], null),
+            Boolean.valueOf(fields[5]).booleanValue());
+
+        // Recreate the same version state that the artifact resolver left behind: a version without a range, or a range together
+        // with the version that was selected from it.
+        if (StringUtils.isEmpty(versionSpec)) {
+            artifact.setVersion(selectedVersion);
+        }
+        else {
+            artifact.selectVersion(selectedVersion);
+        }
+        return artifact;
+    }
+}
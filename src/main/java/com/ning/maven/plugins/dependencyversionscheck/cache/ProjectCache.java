@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+
+/**
+ * Memoizes the MavenProject objects built from the repository. Artifacts that differ only in type or classifier share
+ * the same pom, so the cache is keyed by groupId, artifactId and version. The cache is bounded and holds its values
+ * through soft references, so large dependency graphs can not exhaust the heap.
+ *
+ * Poms that do not exist are remembered in a {@link MissingArtifactCache}; later requests for them fail at once.
+ *
+ * This class is thread safe. Concurrent requests for the same pom wait for a single build.
+ */
+public class ProjectCache
+{
+    private final Cache cache;
+    private final InFlightRequests builds = new InFlightRequests();
+    private final MissingArtifactCache missingArtifacts;
+
+    public ProjectCache(final long maximumSize, final MissingArtifactCache missingArtifacts)
+    {
+        this.missingArtifacts = missingArtifacts;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .softValues()
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the project for the given artifact. If no project is cached, it is built by the given loader. A failed build is
+     * not remembered if the given cancellation of the requesting task was cancelled. Requests that wait for the build of
+     * another thread are counted as coalesced in the given metrics.
+     */
+    public MavenProject get(final Artifact artifact, final Callable loader, final Cancellation cancellation, final RunMetrics metrics)
+        throws ProjectBuildingException
+    {
+        final String key = getKey(artifact);
+
+        final MavenProject project = (MavenProject) cache.getIfPresent(key);
+        if (project != null) {
+            return project;
+        }
+
+        try {
+            return (MavenProject) builds.get(key, new Callable() {
+                public Object call() throws Exception
+                {
+                    // A build that finished right before this request started is not running anymore, but already cached.
+                    MavenProject result = (MavenProject) cache.asMap().get(key);
+                    if (result == null) {
+                        final ProjectBuildingException failure = missingArtifacts.getPomFailure(key);
+                        if (failure != null) {
+                            throw failure;
+                        }
+                        try {
+                            result = (MavenProject) loader.call();
+                        }
+                        catch (ProjectBuildingException pbe) {
+                            missingArtifacts.putPomFailure(key, pbe, cancellation);
+                            throw pbe;
+                        }
+                        cache.put(key, result);
+                    }
+                    return result;
+                }
+            }, metrics);
+        }
+        catch (ExecutionException ee) {
+            Throwables.propagateIfInstanceOf(ee.getCause(), ProjectBuildingException.class);
+            throw Throwables.propagate(ee.getCause());
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(ie);
+        }
+    }
+
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+
+    private static String getKey(final Artifact artifact)
+    {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+/**
+ * Holds the caches that are shared between all executions of the plugin in a build, so that the modules
+ * of a multi-module build do not resolve the same poms over and over again. This is a plexus singleton;
+ * all of its caches are thread safe, so it can be used from parallel reactor builds. Parsed versions are
+ * not kept here but shared through {@link Version#of(String, String)}.
+ *
+ * The caches are cleared whenever a new build (identified by its list of reactor projects) starts.
+ *
+ * @plexus.component role="com.ning.maven.plugins.dependencyversionscheck.cache.ReactorCache"
+ */
+public class ReactorCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ReactorCache.class);
+
+    private static final long COMPATIBILITY_CACHE_SIZE = 100000L;
+
+    /** The reactor projects of the current build. Used to detect the start of a new build. */
+    private List reactorProjects = null;
+
+    private ProjectCache projectCache = null;
+    private Cache transitiveClosures = null;
+    private InFlightRequests closuresInFlight = null;
+    private CompatibilityCache compatibilityCache = null;
+    private MissingArtifactCache missingArtifactCache = null;
+
+    /**
+     * Prepares the caches for a plugin execution. If the execution belongs to a different build than the previous one, all caches are reset.
+     * The size of the caches is determined by the first execution of a build.
+     */
+    public synchronized void start(final List currentReactorProjects, final long maximumSize)
+    {
+        if (reactorProjects != currentReactorProjects || projectCache == null) {
+            LOG.debug("Starting new reactor cache, holding up to {} poms.", maximumSize);
+
+            reactorProjects = currentReactorProjects;
+            missingArtifactCache = new MissingArtifactCache();
+            projectCache = new ProjectCache(maximumSize, missingArtifactCache);
+            transitiveClosures = CacheBuilder.newBuilder().maximumSize(maximumSize).softValues().recordStats().build();
+            closuresInFlight = new InFlightRequests();
+            compatibilityCache = new CompatibilityCache(COMPATIBILITY_CACHE_SIZE);
+        }
+    }
+
+    public synchronized ProjectCache getProjectCache()
+    {
+        return projectCache;
+    }
+
+    public synchronized CompatibilityCache getCompatibilityCache()
+    {
+        return compatibilityCache;
+    }
+
+    public synchronized MissingArtifactCache getMissingArtifactCache()
+    {
+        return missingArtifactCache;
+    }
+
+    /**
+     * Returns the transitive hull stored for a key or null.
+     */
+    public Set getTransitiveClosure(final String key)
+    {
+        return (Set) getTransitiveClosures().getIfPresent(key);
+    }
+
+    public void putTransitiveClosure(final String key, final Set artifacts)
+    {
+        getTransitiveClosures().put(key, Collections.unmodifiableSet(artifacts));
+    }
+
+    /**
+     * Computes the transitive hull for a key by the given loader and stores it. Concurrent requests for the same key (e.g. from
+     * the modules of a parallel build) wait for a single computation and are counted as coalesced in the given metrics.
+     */
+    public Set loadTransitiveClosure(final String key, final Callable loader, final RunMetrics metrics)
+        throws ExecutionException, InterruptedException
+    {
+        final Cache closures = getTransitiveClosures();
+        final InFlightRequests requests;
+        synchronized (this) {
+            requests = closuresInFlight;
+        }
+
+        return (Set) requests.get(key, new Callable() {
+            public Object call() throws Exception
+            {
+                // A computation that finished right before this request started is not running anymore, but already stored.
+                Set artifacts = (Set) closures.asMap().get(key);
+                if (artifacts == null) {
+                    artifacts = Collections.unmodifiableSet((Set) loader.call());
+                    closures.put(key, artifacts);
+                }
+                return artifacts;
+            }
+        }, metrics);
+    }
+
+    /**
+     * Returns a one-line report of the hit rates of all caches.
+     */
+    public String getStatistics()
+    {
+        return "poms " + format(getProjectCache().stats())
+            + ", transitive dependencies " + format(getTransitiveClosures().stats())
+            + ", versions " + format(Version.poolStats())
+            + ", compatibility decisions " + format(getCompatibilityCache().stats());
+    }
+
+    private synchronized Cache getTransitiveClosures()
+    {
+        return transitiveClosures;
+    }
+
+    private static String format(final CacheStats stats)
+    {
+        return stats.hitCount() + " hits, " + stats.missCount() + " misses (" + Math.round(stats.hitRate() * 100.0) + "%)";
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingException;
+import org.apache.maven.project.artifact.InvalidDependencyVersionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.ning.maven.plugins.dependencyversionscheck.cache.InFlightRequests;
+import com.ning.maven.plugins.dependencyversionscheck.cache.ProjectCache;
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+import com.ning.maven.plugins.dependencyversionscheck.executor.ResolutionExecutor;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+
+/**
+ * Resolves the transitive hull of artifacts by walking the dependency graph directly instead of running the
+ * artifact resolver for every direct dependency. The declared dependencies of every node are read only once per
+ * groupId, artifactId and version and are shared between all direct dependencies, so overlapping sub-graphs are only
+ * resolved once. Each call to {@link #resolve(Artifact, ArtifactFilter, Cancellation)} then projects the view of a single artifact
+ * out of the shared graph.
+ *
+ * The walk mirrors the rules of the Maven 2 artifact collector with the filters the plugin passes to it: scopes are
+ * inherited along the path, exclusions accumulate, the filter of the direct dependency applies to every node (the
+ * collector hands it down as the dependency filter of every artifact) and version conflicts are mediated by "nearest
+ * wins". Optional dependencies are only followed directly below the starting artifact; they and everything below them
+ * take part in the mediation, but are left out of the result, just like the collector drops them only at the end.
+ * Unlike the collector, it does not follow relocations and does not intersect version ranges of conflicting nodes.
+ *
+ * If an executor is given, the poms of all children of a node are loaded by separate tasks as soon as the node is
+ * expanded, so the poms of a large graph are read in parallel while the walk itself stays sequential and deterministic.
+ * These tasks belong to the cancellation of the walk and end with it: when the walk returns or fails, tasks that have not
+ * started yet are dropped and running tasks are waited for.
+ *
+ * This class is thread safe.
+ */
+public class GraphResolutionEngine
+{
+    private static final Logger LOG = LoggerFactory.getLogger(GraphResolutionEngine.class);
+
+    private final ArtifactFactory artifactFactory;
+    private final ArtifactMetadataSource artifactMetadataSource;
+    private final RepositoryLookup repositoryLookup;
+    private final ProjectCache projectCache;
+    private final ArtifactRepository localRepository;
+    private final List remoteRepositories;
+    private final RunMetrics metrics;
+
+    /** Loads the poms of children ahead of the walk. Null if poms are only loaded when they are reached. */
+    private final ResolutionExecutor prefetchExecutor;
+
+    /** groupId:artifactId:version to the list of declared dependencies of that pom. */
+    private final ConcurrentMap dependenciesByGav = new ConcurrentHashMap();
+
+    /** groupId:artifactId to the available versions. Only filled for artifacts that are referenced with a version range. */
+    private final ConcurrentMap availableVersionsByName = new ConcurrentHashMap();
+
+    /** groupId:artifactId of the available versions that are currently being retrieved. */
+    private final InFlightRequests versionRequests = new InFlightRequests();
+
+    public GraphResolutionEngine(final ArtifactFactory artifactFactory,
+        final ArtifactMetadataSource artifactMetadataSource,
+        final RepositoryLookup repositoryLookup,
+        final ProjectCache projectCache,
+        final ArtifactRepository localRepository,
+        final List remoteRepositories,
+        final ResolutionExecutor prefetchExecutor,
+        final RunMetrics metrics)
+    {
+        this.artifactFactory = artifactFactory;
+        this.artifactMetadataSource = artifactMetadataSource;
+        this.repositoryLookup = repositoryLookup;
+        this.projectCache = projectCache;
+        this.localRepository = localRepository;
+        this.remoteRepositories = remoteRepositories;
+        this.prefetchExecutor = prefetchExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the transitive hull of the given artifact in its own scope. The filter is applied to every node of the
+     * graph, just like the dependency filter that the artifacts of the direct dependencies carry into the artifact resolver.
+     * The cancellation is the one of the calling task.
+     */
+    public Set resolve(final Artifact artifact, final ArtifactFilter filter, final Cancellation cancellation)
+        throws ProjectBuildingException, InvalidDependencyVersionException, ArtifactResolutionException
+    {
+        // Dependency conflict id to the node that won the version mediation.
+        final Map winners = new LinkedHashMap();
+        final LinkedList queue = new LinkedList();
+
+        final Node root = new Node(artifact, Collections.EMPTY_SET, 0, false);
+        winners.put(artifact.getDependencyConflictId(), root);
+        queue.add(root);
+
+        // Loads of poms that were started ahead of the walk.
+        final List prefetches = new ArrayList();
+        try {
+            // Walking the graph breadth first visits nodes by increasing depth, so the first node that shows up for
+            // a conflict id is the nearest one.
+            while (!queue.isEmpty()) {
+                final Node node = (Node) queue.removeFirst();
+
+                // don't pull in the transitive deps of a system-scoped dependency.
+                if (node != root && Artifact.SCOPE_SYSTEM.equals(node.artifact.getScope())) {
+                    continue;
+                }
+
+                for (Iterator it = getDependencies(node, root, cancellation).iterator(); it.hasNext();) {
+                    final Dependency dependency = (Dependency) it.next();
+                    final Artifact child = createChild(node, root, dependency, filter);
+
+                    if (child == null) {
+                        continue;
+                    }
+
+                    // Optional dependencies are only followed directly below the starting artifact.
+                    if (child.isOptional() && node != root) {
+                        continue;
+                    }
+
+                    final Node previous = (Node) winners.get(child.getDependencyConflictId());
+                    if (previous != null) {
+                        checkScopeUpdate(previous, child);
+                        continue;
+                    }
+
+                    final Set exclusions = getExclusions(node, dependency);
+                    final Node childNode = new Node(child, exclusions, node.depth + 1, node.hidden || child.isOptional());
+
+                    selectVersion(child);
+
+                    winners.put(child.getDependencyConflictId(), childNode);
+                    queue.add(childNode);
+                    prefetch(childNode, root, cancellation, prefetches);
+                }
+            }
+        }
+        finally {
+            if (!prefetches.isEmpty()) {
+                prefetchExecutor.withdraw(prefetches);
+            }
+        }
+
+        final Set result = new LinkedHashSet();
+        for (Iterator it = winners.values().iterator(); it.hasNext();) {
+            final Node node = (Node) it.next();
+            // Optional dependencies and everything below them take part in the mediation, but are not part of the result. The
+            // collector does the same: the optional filter is only applied to the trail of the nodes that won the mediation.
+            if (node != root && !node.hidden) {
+                result.add(node.artifact);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts loading the pom of a node in the background and adds the task to the given list. Failures are ignored here; they
+     * are reported when the walk reaches the node and loads the pom again.
+     */
+    private void prefetch(final Node node, final Node root, final Cancellation cancellation, final List prefetches)
+    {
+        if (prefetchExecutor == null || Artifact.SCOPE_SYSTEM.equals(node.artifact.getScope())) {
+            return;
+        }
+
+        final String key = getKey(node.artifact);
+        if (dependenciesByGav.containsKey(key)) {
+            return;
+        }
+
+        prefetches.add(prefetchExecutor.fork(new Callable() {
+            public Object call()
+            {
+                try {
+                    getDependencies(node, root, cancellation);
+                }
+                catch (Exception e) {
+                    LOG.debug("Could not prefetch " + key, e);
+                }
+                return null;
+            }
+        }, cancellation));
+    }
+
+    /**
+     * Returns the declared dependencies for the pom of a node. These are memoized by groupId, artifactId and version.
+     */
+    private List getDependencies(final Node node, final Node root, final Cancellation cancellation)
+        throws ProjectBuildingException, ArtifactResolutionException
+    {
+        final Artifact artifact = node.artifact;
+        final String key = getKey(artifact);
+
+        List dependencies = (List) dependenciesByGav.get(key);
+
+        if (dependencies == null) {
+            try {
+                final MavenProject project = projectCache.get(artifact, new Callable() {
+                    public Object call() throws ProjectBuildingException
+                    {
+                        return repositoryLookup.buildProject(artifact);
+                    }
+                }, cancellation, metrics);
+                dependencies = Collections.unmodifiableList(new ArrayList(project.getDependencies()));
+                final List previous = (List) dependenciesByGav.putIfAbsent(key, dependencies);
+                if (previous != null) {
+                    dependencies = previous;
+                }
+            }
+            catch (ProjectBuildingException pbe) {
+                if (node == root) {
+                    throw pbe;
+                }
+                // The artifact resolver reports problems below the starting artifact as resolution problems.
+                throw new ArtifactResolutionException("Unable to get dependency information: " + pbe.getMessage(), artifact, pbe);
+            }
+        }
+        return dependencies;
+    }
+
+    private static String getKey(final Artifact artifact)
+    {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+    }
+
+    /**
+     * Creates the artifact for a dependency of a node. Returns null if the dependency is not visible from the node.
+     */
+    private Artifact createChild(final Node node, final Node root, final Dependency dependency, final ArtifactFilter filter)
+        throws InvalidDependencyVersionException
+    {
+        final String scope = StringUtils.isEmpty(dependency.getScope()) ? Artifact.SCOPE_COMPILE : dependency.getScope();
+
+        final VersionRange versionRange;
+        try {
+            versionRange = VersionRange.createFromVersionSpec(dependency.getVersion());
+        }
+        catch (InvalidVersionSpecificationException e) {
+            throw new InvalidDependencyVersionException("Unable to parse version '" + dependency.getVersion() +
+                "' for dependency '" + dependency.getManagementKey() + "': " + e.getMessage(), e);
+        }
+
+        // Directly below the starting artifact, the scope is not inherited.
+        final String inheritedScope = (node == root) ? null : node.artifact.getScope();
+
+        final Artifact child = artifactFactory.createDependencyArtifact(dependency.getGroupId(),
+            dependency.getArtifactId(),
+            versionRange,
+            dependency.getType(),
+            dependency.getClassifier(),
+            scope,
+            inheritedScope,
+            dependency.isOptional());
+
+        if (child == null
+            || node.exclusions.contains(dependency.getGroupId() + ":" + dependency.getArtifactId())
+            || (filter != null && !filter.include(child))) {
+            return null;
+        }
+        return child;
+    }
+
+    /**
+     * Returns the exclusions that apply to the dependencies of a new node.
+     */
+    private Set getExclusions(final Node node, final Dependency dependency)
+    {
+        if (dependency.getExclusions() == null || dependency.getExclusions().isEmpty()) {
+            return node.exclusions;
+        }
+
+        final Set exclusions = new HashSet(node.exclusions);
+        for (Iterator it = dependency.getExclusions().iterator(); it.hasNext();) {
+            final Exclusion exclusion = (Exclusion) it.next();
+            exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+        }
+        return exclusions;
+    }
+
+    /**
+     * Picks a version for artifacts that are referenced with a version range.
+     */
+    private void selectVersion(final Artifact artifact)
+        throws ArtifactResolutionException
+    {
+        if (artifact.getVersion() != null) {
+            return;
+        }
+
+        final String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+        List versions = (List) availableVersionsByName.get(key);
+
+        if (versions == null) {
+            try {
+                // Several walks often hit the same range at the same time; only one of them asks the repositories.
+                versions = (List) versionRequests.get(key, new Callable() {
+                    public Object call() throws ArtifactMetadataRetrievalException
+                    {
+                        List result = (List) availableVersionsByName.get(key);
+                        if (result == null) {
+                            result = new ArrayList(artifactMetadataSource.retrieveAvailableVersions(artifact, localRepository, remoteRepositories));
+                            Collections.sort(result);
+                            result = Collections.unmodifiableList(result);
+                            final List previous = (List) availableVersionsByName.putIfAbsent(key, result);
+                            if (previous != null) {
+                                result = previous;
+                            }
+                        }
+                        return result;
+                    }
+                }, metrics);
+            }
+            catch (ExecutionException ee) {
+                final Throwable cause = ee.getCause();
+                if (cause instanceof ArtifactMetadataRetrievalException) {
+                    throw new ArtifactResolutionException("Unable to get dependency information: " + cause.getMessage(), artifact, cause);
+                }
+                throw Throwables.propagate(cause);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(ie);
+            }
+        }
+
+        final ArtifactVersion version = artifact.getVersionRange().matchVersion(versions);
+        if (version == null) {
+            throw new OverConstrainedVersionException("Couldn't find a version in " + versions + " to match range " + artifact.getVersionRange(), artifact);
+        }
+
+        artifact.setAvailableVersions(versions);
+        artifact.selectVersion(version.toString());
+        LOG.debug("Selected {} for {}", version, artifact);
+    }
+
+    /**
+     * If a farther node has a more visible scope than the nearest one, the nearest one is moved into that scope. The scope
+     * of nodes directly below the starting artifact is never changed.
+     */
+    private void checkScopeUpdate(final Node nearest, final Artifact farthest)
+    {
+        final String nearestScope = nearest.artifact.getScope();
+        final String farthestScope = farthest.getScope();
+
+        final boolean updateScope = (Artifact.SCOPE_RUNTIME.equals(farthestScope) && (Artifact.SCOPE_TEST.equals(nearestScope) || Artifact.SCOPE_PROVIDED.equals(nearestScope)))
+            || (Artifact.SCOPE_COMPILE.equals(farthestScope) && !Artifact.SCOPE_COMPILE.equals(nearestScope));
+
+        if (updateScope && nearest.depth >= 2) {
+            nearest.artifact.setScope(farthestScope);
+        }
+    }
+
+    private static final class Node
+    {
+        private final Artifact artifact;
+
+        /** groupId:artifactId of all the artifacts excluded on the path to this node. */
+        private final Set exclusions;
+
+        private final int depth;
+
+        /** True if this node or one of its parents is an optional dependency. */
+        private final boolean hidden;
+
+        private Node(final Artifact artifact, final Set exclusions, final int depth, final boolean hidden)
+        {
+            this.artifact = artifact;
+            this.exclusions = exclusions;
+            this.depth = depth;
+            this.hidden = hidden;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.engine;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectBuilder;
+import org.apache.maven.project.ProjectBuildingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ning.maven.plugins.dependencyversionscheck.cache.MissingArtifactCache;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+
+/**
+ * Builds poms and resolves transitive dependencies from the repositories. In local-first mode, the pom of a released
+ * artifact is first built from the local repository alone, so that no update checks against the remote repositories are
+ * made for poms that are already there. Only if that fails, the pom is built again with the remote repositories. Released
+ * poms never change, but SNAPSHOT poms do, so they always go to the remote repositories. Poms that failed locally are
+ * remembered in a {@link MissingArtifactCache}, so that every pom is tried locally at most once. This matters on Maven 3,
+ * which refuses to hand out artifacts from the local repository that were downloaded from a remote repository that is not
+ * part of the request.
+ *
+ * Transitive dependencies are always resolved with the remote repositories, even for released artifacts: the hull may
+ * contain version ranges and SNAPSHOTs, which the local repository alone would resolve against stale metadata.
+ *
+ * If Maven runs offline, it never contacts the remote repositories anyway, so every pom is only built once.
+ *
+ * This class is thread safe.
+ */
+public class RepositoryLookup
+{
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryLookup.class);
+
+    private final MavenProjectBuilder mavenProjectBuilder;
+    private final ArtifactResolver artifactResolver;
+    private final ArtifactMetadataSource artifactMetadataSource;
+    private final ArtifactRepository localRepository;
+    private final List remoteRepositories;
+    private final boolean localFirst;
+    private final boolean offline;
+    private final MissingArtifactCache missingArtifactCache;
+    private final RunMetrics metrics;
+
+    public RepositoryLookup(final MavenProjectBuilder mavenProjectBuilder,
+        final ArtifactResolver artifactResolver,
+        final ArtifactMetadataSource artifactMetadataSource,
+        final ArtifactRepository localRepository,
+        final List remoteRepositories,
+        final boolean localFirst,
+        final boolean offline,
+        final MissingArtifactCache missingArtifactCache,
+        final RunMetrics metrics)
+    {
+        this.mavenProjectBuilder = mavenProjectBuilder;
+        this.artifactResolver = artifactResolver;
+        this.artifactMetadataSource = artifactMetadataSource;
+        this.localRepository = localRepository;
+        this.remoteRepositories = remoteRepositories;
+        this.localFirst = localFirst;
+        this.offline = offline;
+        this.missingArtifactCache = missingArtifactCache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds the pom of an artifact. Only poms that were built successfully are counted.
+     */
+    public MavenProject buildProject(final Artifact artifact)
+        throws ProjectBuildingException
+    {
+        final long start = metrics.start();
+        try {
+            if (isLocalFirst(artifact) && !missingArtifactCache.isPomMissingLocally(artifact)) {
+                try {
+                    final MavenProject project = mavenProjectBuilder.buildFromRepository(artifact, Collections.EMPTY_LIST, localRepository);
+                    metrics.increment(RunMetrics.COUNTER_LOCAL_LOOKUPS);
+                    metrics.increment(RunMetrics.COUNTER_POMS_BUILT);
+                    return project;
+                }
+                catch (ProjectBuildingException pbe) {
+                    missingArtifactCache.putPomMissingLocally(artifact);
+                    LOG.debug("Could not build the pom of {} from the local repository, trying the remote repositories", artifact, pbe);
+                }
+            }
+
+            final MavenProject project = mavenProjectBuilder.buildFromRepository(artifact, remoteRepositories, localRepository);
+            metrics.increment(RunMetrics.COUNTER_POMS_BUILT);
+            return project;
+        }
+        finally {
+            metrics.stop(RunMetrics.PHASE_BUILD_POM, start);
+        }
+    }
+
+    /**
+     * Resolves the transitive dependencies of a set of artifacts, which are the dependencies of the given origin.
+     */
+    public Set resolveTransitively(final Set artifacts, final Artifact origin, final ArtifactFilter filter)
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        final ArtifactResolutionResult result = artifactResolver.resolveTransitively(artifacts,
+            origin,
+            Collections.EMPTY_MAP,
+            localRepository,
+            remoteRepositories,
+            artifactMetadataSource,
+            filter);
+        return result.getArtifacts();
+    }
+
+    private boolean isLocalFirst(final Artifact artifact)
+    {
+        return localFirst && !offline && !artifact.isSnapshot();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.shared.dependency.tree.DependencyNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Derives the transitive hull of the direct dependencies from the dependency tree that Maven already built for the
+ * project, without any further repository access. The tree records for every node which version its parent asked for,
+ * also for the nodes that were already present elsewhere in the tree (OMITTED_FOR_DUPLICATE). Versions and scopes that were changed by the dependency management or by a
+ * scope update of the project are reported as they were declared.
+ *
+ * The tree is built relative to the project, so it can only stand in for the resolution of a direct dependency in its
+ * own scope if that dependency is in compile scope. The tree also does not contain the dependencies of a version that
+ * lost the version mediation. For dependencies in other scopes, whenever a version that lost the mediation would win
+ * inside the dependency, whenever a duplicate node was expanded in a different scope or with different exclusions and
+ * whenever the tree does not tell which version of a managed dependency was declared, {@link #resolve(Artifact, ArtifactFilter)}
+ * returns null and the caller must fall back to the artifact resolver (see MNG-3236).
+ *
+ * This class is thread safe.
+ */
+public class TreeResolutionEngine
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TreeResolutionEngine.class);
+
+    private final ArtifactFactory artifactFactory;
+
+    /** Dependency conflict id to the direct dependencies of the project. */
+    private final Map directNodes = new HashMap();
+
+    /** Dependency conflict id to the node that was included in the tree. Used to expand duplicates. */
+    private final Map includedNodes = new HashMap();
+
+    /** Dependency conflict ids of all artifacts managed by the project. */
+    private final Set managedIds;
+
+    public TreeResolutionEngine(final ArtifactFactory artifactFactory, final DependencyNode rootNode, final Map managedVersionMap)
+    {
+        this.artifactFactory = artifactFactory;
+        this.managedIds = (managedVersionMap == null) ? Collections.EMPTY_SET : new HashSet(managedVersionMap.keySet());
+
+        for (Iterator it = rootNode.getChildren().iterator(); it.hasNext();) {
+            final DependencyNode node = (DependencyNode) it.next();
+            directNodes.put(node.getArtifact().getDependencyConflictId(), node);
+        }
+
+        for (Iterator it = rootNode.iterator(); it.hasNext();) {
+            final DependencyNode node = (DependencyNode) it.next();
+            if (node.getState() == DependencyNode.INCLUDED) {
+                includedNodes.put(node.getArtifact().getDependencyConflictId(), node);
+            }
+        }
+    }
+
+    /**
+     * Returns the transitive hull of the given direct dependency in its own scope or null if it can not be derived from the tree.
+     * The filter is applied to every node, just like a dependency filter handed to the artifact resolver.
+     */
+    public Set resolve(final Artifact artifact, final ArtifactFilter filter)
+    {
+        final DependencyNode directNode = (DependencyNode) directNodes.get(artifact.getDependencyConflictId());
+
+        if (directNode == null) {
+            LOG.debug("{} is not a direct dependency, can not use the dependency tree", artifact);
+            return null;
+        }
+
+        if (!Artifact.SCOPE_COMPILE.equals(getDeclaredScope(directNode))) {
+            LOG.debug("{} is not in compile scope, can not use the dependency tree", artifact);
+            return null;
+        }
+
+        final Set result = new LinkedHashSet();
+        final Set seen = new HashSet();
+        final LinkedList queue = new LinkedList(directNode.getChildren());
+
+        seen.add(artifact.getDependencyConflictId());
+
+        // Walking the tree breadth first visits nodes by increasing depth, so the first node that shows up for a
+        // conflict id is the nearest one and wins the version mediation.
+        while (!queue.isEmpty()) {
+            final DependencyNode node = (DependencyNode) queue.removeFirst();
+            final Artifact nodeArtifact = node.getArtifact();
+            final String conflictId = nodeArtifact.getDependencyConflictId();
+
+            if (node.getState() == DependencyNode.OMITTED_FOR_CYCLE || nodeArtifact.isOptional() || seen.contains(conflictId)) {
+                continue;
+            }
+
+            // Maven 3 applies the dependency management before the tree is built and does not record the version
+            // that was declared, so a managed node without a premanaged version can not be trusted.
+            if (node.getPremanagedVersion() == null && managedIds.contains(conflictId)) {
+                LOG.debug("Declared version of {} is unknown, can not use the dependency tree", conflictId);
+                return null;
+            }
+
+            final Artifact declaredArtifact = getDeclaredArtifact(node);
+            if (declaredArtifact == null || !filter.include(declaredArtifact)) {
+                continue;
+            }
+
+            seen.add(conflictId);
+            result.add(declaredArtifact);
+
+            // don't pull in the transitive deps of a system-scoped dependency.
+            if (Artifact.SCOPE_SYSTEM.equals(declaredArtifact.getScope())) {
+                continue;
+            }
+
+            if (node.getState() == DependencyNode.INCLUDED) {
+                queue.addAll(node.getChildren());
+            }
+            else if (node.getState() == DependencyNode.OMITTED_FOR_CONFLICT) {
+                // The tree does not contain the dependencies of a version that lost the version mediation.
+                LOG.debug("{} lost the version mediation of the project, can not use the dependency tree", node.getArtifact());
+                return null;
+            }
+            else if (node.getState() == DependencyNode.OMITTED_FOR_DUPLICATE) {
+                final DependencyNode includedNode = (DependencyNode) includedNodes.get(conflictId);
+
+                if (includedNode != null) {
+                    // The children of the included node inherited its scope, so they can only be reused if both nodes agree.
+                    if (!StringUtils.equals(includedNode.getArtifact().getScope(), declaredArtifact.getScope())) {
+                        LOG.debug("{} is expanded in scope {} but used in scope {}, can not use the dependency tree",
+                            new Object[] {conflictId, includedNode.getArtifact().getScope(), declaredArtifact.getScope()});
+                        return null;
+                    }
+                    // The children of the included node also left out everything excluded on its path. Every exclusion gives
+                    // the artifacts below it a new dependency filter, so both paths excluded the same artifacts only if both
+                    // nodes carry the same filter.
+                    if (includedNode.getArtifact().getDependencyFilter() != nodeArtifact.getDependencyFilter()) {
+                        LOG.debug("{} is expanded with other exclusions than it is used with, can not use the dependency tree", conflictId);
+                        return null;
+                    }
+                    queue.addAll(includedNode.getChildren());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the artifact of a node with the version and scope that were declared by its parent, before the project applied its
+     * dependency management or updated the scope. Returns null if the node has no version.
+     */
+    private Artifact getDeclaredArtifact(final DependencyNode node)
+    {
+        final Artifact artifact = node.getArtifact();
+        final String version = StringUtils.defaultString(node.getPremanagedVersion(), artifact.getVersion());
+
+        if (version == null) {
+            LOG.debug("No version found for {}, ignoring", artifact);
+            return null;
+        }
+
+        final String scope = getDeclaredScope(node);
+
+        if (version.equals(artifact.getVersion()) && StringUtils.equals(scope, artifact.getScope())) {
+            return artifact;
+        }
+
+        return artifactFactory.createDependencyArtifact(artifact.getGroupId(),
+            artifact.getArtifactId(),
+            VersionRange.createFromVersion(version),
+            artifact.getType(),
+            artifact.getClassifier(),
+            scope,
+            artifact.isOptional());
+    }
+
+    private static String getDeclaredScope(final DependencyNode node)
+    {
+        if (node.getPremanagedScope() != null) {
+            return node.getPremanagedScope();
+        }
+        if (node.getOriginalScope() != null) {
+            return node.getOriginalScope();
+        }
+        return node.getArtifact().getScope();
+    }
+}
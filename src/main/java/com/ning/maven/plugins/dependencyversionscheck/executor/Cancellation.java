@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.executor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cancels a group of tasks. Tasks that have not started yet are skipped, running tasks are interrupted. A thread is
+ * only interrupted while it runs a task of the group, so the threads of a shared pool never carry an interrupt over to
+ * an unrelated task.
+ *
+ * Tasks of a group may run other tasks of the same group in their thread (e.g. when they wait for subtasks), so every
+ * thread keeps a count of the tasks it is in. The thread stays interruptible until it left its outermost task.
+ *
+ * This class is thread safe.
+ */
+public class Cancellation
+{
+    /** Thread to the number of tasks of this group it is running, as a single element array. */
+    private final Map runningThreads = new HashMap();
+
+    /** Threads that were interrupted by this cancellation and have not left their outermost task yet. */
+    private final Set interruptedThreads = new HashSet();
+
+    private boolean cancelled = false;
+
+    /**
+     * Cancels all tasks. Interrupts all threads that currently run a task, except for the calling thread.
+     */
+    public synchronized void cancel()
+    {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+
+        for (Iterator it = runningThreads.keySet().iterator(); it.hasNext();) {
+            final Thread thread = (Thread) it.next();
+            if (thread != Thread.currentThread()) {
+                interruptedThreads.add(thread);
+                thread.interrupt();
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Registers the calling thread as running a task. Returns false if the task must not start because the group was cancelled.
+     */
+    synchronized boolean enter()
+    {
+        if (cancelled) {
+            return false;
+        }
+        final int[] depth = (int[]) runningThreads.get(Thread.currentThread());
+        if (depth == null) {
+            runningThreads.put(Thread.currentThread(), new int[] {1});
+        }
+        else {
+            depth[0]++;
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters the calling thread from a task. When the thread leaves its outermost task, an interrupt that this
+     * cancellation delivered to it is cleared; interrupts from anywhere else are kept.
+     */
+    synchronized void exit()
+    {
+        final Thread thread = Thread.currentThread();
+        final int[] depth = (int[]) runningThreads.get(thread);
+        if (depth != null && --depth[0] > 0) {
+            return;
+        }
+
+        runningThreads.remove(thread);
+        if (interruptedThreads.remove(thread)) {
+            Thread.interrupted();
+        }
+    }
+}
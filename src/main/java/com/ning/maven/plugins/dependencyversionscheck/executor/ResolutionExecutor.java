@@ -0,0 +1,462 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the dependency resolution tasks of all plugin executions in a build. This is a plexus singleton, so all
+ * executions share one thread pool. The pool is created when the first task is submitted and is only replaced if an
+ * execution asks for a different configuration. Idle threads are daemons and end after the keep-alive time, so no
+ * pool is ever shut down, not even a replaced one.
+ *
+ * If the queue of the pool is bounded and full, the submitting thread runs the task itself.
+ *
+ * On a JVM that supports virtual threads (Java 21 and later), the executor can instead start a new virtual thread for
+ * every task. The number of threads, the queue size and the keep-alive time are ignored in this mode. On older JVMs,
+ * the executor falls back to the thread pool.
+ *
+ * Tasks that wait for other tasks must use {@link #invokeAll(List)}: the waiting thread runs all tasks that no
+ * worker has started yet, so it never waits for a task that is stuck in the queue behind it. Tasks that only work ahead
+ * of the caller use {@link #fork(Callable, Cancellation)} and {@link #withdraw(List)}: the caller drops all tasks that no
+ * worker has started yet, so it only waits for tasks that are already running.
+ *
+ * If the build is aborted (e.g. Ctrl-C), a shutdown hook cancels the groups of all running {@link #invokeAll(List, Cancellation)}
+ * calls. The hook is registered once, when the executor is first used.
+ *
+ * @plexus.component role="com.ning.maven.plugins.dependencyversionscheck.executor.ResolutionExecutor"
+ */
+public class ResolutionExecutor
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ResolutionExecutor.class);
+
+    /** Number of threads per processor if no thread count was configured. */
+    private static final int THREADS_PER_PROCESSOR = 5;
+
+    /** The executor that runs the tasks. Either the thread pool or an executor that starts a virtual thread per task. */
+    private ExecutorService delegate = null;
+    private ThreadPoolExecutor threadPool = null;
+    private ListeningExecutorService executorService = null;
+
+    private boolean virtualThreads = false;
+    private boolean virtualThreadsUnavailable = false;
+    private int threads = -1;
+    private int queueSize = -1;
+    private long keepAliveSeconds = -1L;
+
+    /** Cancellations of all running invokeAll calls. */
+    private final Set runningGroups = Collections.newSetFromMap(new ConcurrentHashMap());
+    private boolean shutdownHookRegistered = false;
+
+    private final AtomicLong submittedTasks = new AtomicLong();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Configures the pool for a plugin execution. A thread count of 0 or less selects a number of threads based on the
+     * available processors, a queue size of 0 or less an unbounded queue. If the configuration changes, later tasks go to
+     * a new pool. The old pool is not shut down, as other modules of a parallel build may still be submitting to it; it
+     * runs all tasks it got and its threads end after the keep-alive time, like those of any idle pool.
+     */
+    public synchronized void configure(final boolean requestedVirtualThreads, final int requestedThreads, final int requestedQueueSize, final long requestedKeepAliveSeconds)
+    {
+        final boolean newVirtualThreads = requestedVirtualThreads && !virtualThreadsUnavailable;
+        final int newThreads = requestedThreads > 0 ? requestedThreads : Runtime.getRuntime().availableProcessors() * THREADS_PER_PROCESSOR;
+        final int newQueueSize = Math.max(requestedQueueSize, 0);
+        final long newKeepAliveSeconds = Math.max(requestedKeepAliveSeconds, 1L);
+
+        if (newVirtualThreads == virtualThreads && newThreads == threads && newQueueSize == queueSize && newKeepAliveSeconds == keepAliveSeconds) {
+            return;
+        }
+
+        if (delegate != null) {
+            LOG.debug("Executor configuration changed, replacing executor.");
+            delegate = null;
+            threadPool = null;
+            executorService = null;
+        }
+
+        virtualThreads = newVirtualThreads;
+        threads = newThreads;
+        queueSize = newQueueSize;
+        keepAliveSeconds = newKeepAliveSeconds;
+    }
+
+    /**
+     * Submits a task. Creates the thread pool if necessary.
+     */
+    public ListenableFuture submit(final Callable task)
+    {
+        final long submitTime = System.nanoTime();
+        submittedTasks.incrementAndGet();
+
+        return getExecutorService().submit(new Callable() {
+            public Object call() throws Exception
+            {
+                try {
+                    return task.call();
+                }
+                finally {
+                    recordLatency(System.nanoTime() - submitTime);
+                }
+            }
+        });
+    }
+
+    /**
+     * Offers a fork to the pool. If the calling thread takes it back before a worker starts it, the worker finds nothing to
+     * do; such a fork is neither counted as a task nor timed.
+     */
+    private void submit(final Fork fork)
+    {
+        final long submitTime = System.nanoTime();
+        submittedTasks.incrementAndGet();
+
+        getExecutorService().submit(new Callable() {
+            public Object call()
+            {
+                if (fork.run()) {
+                    recordLatency(System.nanoTime() - submitTime);
+                }
+                else {
+                    submittedTasks.decrementAndGet();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs all tasks and returns their results in the order of the tasks. The tasks are offered to the pool, but the
+     * calling thread takes back and runs every task that no worker has started yet, starting with the last one. It then
+     * only waits for tasks that are already running, so this method can safely be called from a task of this executor.
+     *
+     * If a task fails, its exception is thrown wrapped in an ExecutionException after all tasks have ended.
+     */
+    public List invokeAll(final List tasks)
+        throws InterruptedException, ExecutionException
+    {
+        return invokeAll(tasks, new Cancellation());
+    }
+
+    /**
+     * Runs all tasks like {@link #invokeAll(List)}, but stops as soon as the given cancellation is cancelled. Tasks that did
+     * not start before the cancellation are skipped, running tasks are interrupted and their results (or failures) are
+     * ignored. Only the results of the tasks that completed normally are returned, in the order of the tasks.
+     *
+     * If the calling thread is interrupted while it waits, all tasks are cancelled.
+     */
+    public List invokeAll(final List tasks, final Cancellation cancellation)
+        throws InterruptedException, ExecutionException
+    {
+        runningGroups.add(cancellation);
+        try {
+            return runAll(tasks, cancellation);
+        }
+        finally {
+            runningGroups.remove(cancellation);
+        }
+    }
+
+    private List runAll(final List tasks, final Cancellation cancellation)
+        throws InterruptedException, ExecutionException
+    {
+        final List forks = new ArrayList(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            forks.add(new Fork((Callable) tasks.get(i), cancellation));
+        }
+
+        // The last task is always run by the calling thread, so it is not offered to the pool.
+        for (int i = 0; i < forks.size() - 1 && !cancellation.isCancelled(); i++) {
+            submit((Fork) forks.get(i));
+        }
+
+        for (int i = forks.size() - 1; i >= 0; i--) {
+            ((Fork) forks.get(i)).run();
+        }
+
+        final List results = new ArrayList(forks.size());
+        ExecutionException failure = null;
+        for (int i = 0; i < forks.size(); i++) {
+            final Fork fork = (Fork) forks.get(i);
+            try {
+                if (fork.await()) {
+                    results.add(fork.get());
+                }
+            }
+            catch (InterruptedException ie) {
+                cancellation.cancel();
+                throw ie;
+            }
+            catch (ExecutionException ee) {
+                if (failure == null) {
+                    failure = ee;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Starts a task in the background and returns right away. The task belongs to the group of the given cancellation: it
+     * is skipped if the group is cancelled before it starts and interrupted if the group is cancelled while it runs. Every
+     * task started this way must be handed to {@link #withdraw(List)} before the caller ends.
+     */
+    public Fork fork(final Callable task, final Cancellation cancellation)
+    {
+        final Fork fork = new Fork(task, cancellation);
+        submit(fork);
+        return fork;
+    }
+
+    /**
+     * Ends tasks that were started by {@link #fork(Callable, Cancellation)}. Tasks that no worker has started yet are dropped,
+     * running tasks are waited for. Results and failures of the tasks are ignored. If the calling thread is interrupted while
+     * it waits, it stops waiting and keeps its interrupt.
+     */
+    public void withdraw(final List forks)
+    {
+        for (int i = 0; i < forks.size(); i++) {
+            ((Fork) forks.get(i)).drop();
+        }
+
+        try {
+            for (int i = 0; i < forks.size(); i++) {
+                ((Fork) forks.get(i)).await();
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a one-line report about the pool and the tasks it ran since it was first used. The latency of a task is
+     * the time from its submission to its end, so it includes the time the task waited in the queue.
+     */
+    public synchronized String getStatistics()
+    {
+        final long completed = completedTasks.get();
+        final long averageMillis = completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / completed);
+
+        final StringBuilder sb = new StringBuilder();
+        if (virtualThreads) {
+            sb.append("virtual threads, ");
+        }
+        else {
+            sb.append(threads).append(" threads, ");
+        }
+        if (threadPool != null) {
+            sb.append(threadPool.getActiveCount()).append(" active, ")
+              .append(threadPool.getQueue().size()).append(" queued, ");
+        }
+        sb.append(completed).append(" of ").append(submittedTasks.get()).append(" tasks completed, ")
+          .append("latency ").append(averageMillis).append(" ms avg, ")
+          .append(TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get())).append(" ms max");
+        return sb.toString();
+    }
+
+    private synchronized ListeningExecutorService getExecutorService()
+    {
+        if (!shutdownHookRegistered) {
+            registerShutdownHook();
+            shutdownHookRegistered = true;
+        }
+
+        if (executorService == null) {
+            if (threads < 0) {
+                configure(false, 0, 0, 0L);
+            }
+
+            if (virtualThreads) {
+                delegate = newVirtualThreadPerTaskExecutor();
+                if (delegate == null) {
+                    virtualThreadsUnavailable = true;
+                    virtualThreads = false;
+                }
+            }
+
+            if (delegate == null) {
+                LOG.debug("Creating thread pool with {} threads, queue size {}.", threads, queueSize);
+
+                final BlockingQueue queue = queueSize > 0 ? (BlockingQueue) new ArrayBlockingQueue(queueSize) : new LinkedBlockingQueue();
+                threadPool = new ThreadPoolExecutor(threads, threads, keepAliveSeconds, TimeUnit.SECONDS, queue,
+                    new ThreadFactoryBuilder().setNameFormat("dependency-version-check-worker-%s").setDaemon(true).build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+                threadPool.allowCoreThreadTimeOut(true);
+                delegate = threadPool;
+            }
+            executorService = MoreExecutors.listeningDecorator(delegate);
+        }
+        return executorService;
+    }
+
+    /**
+     * Registers a hook that cancels all running groups when the JVM shuts down. Tasks that were only forked belong to the
+     * group of the invokeAll call that runs their caller, so they are cancelled as well.
+     */
+    private void registerShutdownHook()
+    {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run()
+            {
+                for (Iterator it = runningGroups.iterator(); it.hasNext();) {
+                    ((Cancellation) it.next()).cancel();
+                }
+            }
+        }, "dependency-version-check-shutdown"));
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for every task or null if the JVM does not support virtual threads.
+     * The plugin is built for older JVMs, so the factory method is looked up at runtime.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        try {
+            final ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOG.debug("Running resolution tasks on virtual threads.");
+            return executor;
+        }
+        catch (Exception e) {
+            LOG.warn("Virtual threads are not supported by this JVM (Java {}), using a thread pool.", System.getProperty("java.version"));
+            LOG.debug("Could not create virtual thread executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * A task that is run by whichever thread claims it first.
+     */
+    public static final class Fork
+    {
+        private final Callable task;
+        private final Cancellation cancellation;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile boolean completed = false;
+        private volatile Object result = null;
+        private volatile Throwable failure = null;
+
+        private Fork(final Callable task, final Cancellation cancellation)
+        {
+            this.task = task;
+            this.cancellation = cancellation;
+        }
+
+        /**
+         * Runs the task unless another thread claimed it first or the group was cancelled. Returns true if the task was run.
+         */
+        private boolean run()
+        {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+
+            try {
+                if (!cancellation.enter()) {
+                    return false;
+                }
+                try {
+                    result = task.call();
+                    completed = true;
+                }
+                catch (Throwable t) {
+                    failure = t;
+                }
+                finally {
+                    cancellation.exit();
+                }
+                return true;
+            }
+            finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Claims the task without running it, unless another thread claimed it first.
+         */
+        private void drop()
+        {
+            if (claimed.compareAndSet(false, true)) {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Waits for the task to end. Returns false if the task was skipped or interrupted because of a cancellation.
+         */
+        private boolean await()
+            throws InterruptedException
+        {
+            done.await();
+            return completed || (failure != null && !cancellation.isCancelled());
+        }
+
+        private Object get()
+            throws ExecutionException
+        {
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+    }
+
+    private void recordLatency(final long latencyNanos)
+    {
+        completedTasks.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+
+        long max = maxLatencyNanos.get();
+        while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+}
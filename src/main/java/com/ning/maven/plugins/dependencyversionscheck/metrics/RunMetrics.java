@@ -0,0 +1,367 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Collects the time spent in the phases of a plugin run and counts what the run did. Phase times are the sum of the time
+ * all threads spent in a phase, so with parallel resolution they can add up to more than the time of the whole run.
+ *
+ * The phases are not exclusive: {@link #PHASE_BUILD_POM} is nested in {@link #PHASE_PREFETCH} and, with the graph resolution
+ * engine, in {@link #PHASE_RESOLVE}, so the time of a pom is counted in both. The other phases do not overlap.
+ *
+ * All phases and counters are known up front, so the summary always lists them in the same order. This class is thread safe.
+ *
+ * The peak heap usage and the CPU time are measured for the whole JVM, so they also include other work that runs at the same
+ * time (e.g. other modules of a parallel build). The peak heap usage is never reset, so it is the peak since the start of the JVM
+ * and not of this run; a harness that wants the peak of a single run has to run it in its own JVM.
+ */
+public class RunMetrics
+{
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_PROMETHEUS = "prometheus";
+
+    /** Building the dependency tree of the project. */
+    public static final String PHASE_DEPENDENCY_TREE = "buildDependencyTree";
+    /** Loading the poms of the dependency tree ahead of the resolution. */
+    public static final String PHASE_PREFETCH = "prefetchPoms";
+    /** Building poms from the repository. */
+    public static final String PHASE_BUILD_POM = "buildFromRepository";
+    /** Resolving the transitive dependencies of a direct dependency (by the artifact resolver or a resolution engine). */
+    public static final String PHASE_RESOLVE = "resolveTransitively";
+    /** Asking the strategies whether two versions are compatible. Decisions taken from the compatibility cache are not timed. */
+    public static final String PHASE_STRATEGY = "strategyEvaluation";
+    /** Logging the result and writing the report. */
+    public static final String PHASE_REPORT = "report";
+
+    public static final String COUNTER_POMS_BUILT = "pomsBuilt";
+    public static final String COUNTER_ARTIFACTS_RESOLVED = "artifactsResolved";
+    public static final String COUNTER_RESOLUTIONS = "resolutions";
+    public static final String COUNTER_CONFLICTS = "conflicts";
+    public static final String COUNTER_CACHE_HITS = "cacheHits";
+    public static final String COUNTER_COALESCED = "coalescedRequests";
+    public static final String COUNTER_LOCAL_LOOKUPS = "localLookups";
+
+    private static final String METRIC_PREFIX = "dependency_versions_check_";
+
+    /** com.sun.management.OperatingSystemMXBean#getProcessCpuTime() or null if the JVM does not provide it. */
+    private static final Method PROCESS_CPU_TIME = findProcessCpuTime();
+
+    private final Map phaseNanos;
+    private final Map counters;
+
+    private final long startNanos = System.nanoTime();
+    private final long startCpuNanos;
+    private volatile long endNanos = -1L;
+    private volatile long endCpuNanos = -1L;
+    private volatile long jvmPeakHeapBytes = -1L;
+
+    public RunMetrics()
+    {
+        this.phaseNanos = createValues(new String[] {PHASE_DEPENDENCY_TREE, PHASE_PREFETCH, PHASE_BUILD_POM, PHASE_RESOLVE, PHASE_STRATEGY, PHASE_REPORT});
+        this.counters = createValues(new String[] {COUNTER_POMS_BUILT, COUNTER_ARTIFACTS_RESOLVED, COUNTER_RESOLUTIONS, COUNTER_CONFLICTS, COUNTER_CACHE_HITS, COUNTER_COALESCED, COUNTER_LOCAL_LOOKUPS});
+        this.startCpuNanos = getProcessCpuNanos();
+    }
+
+    private static Map createValues(final String[] names)
+    {
+        final Map values = new LinkedHashMap();
+        for (int i = 0; i < names.length; i++) {
+            values.put(names[i], new AtomicLong());
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    public static boolean isSupported(final String format)
+    {
+        return FORMAT_JSON.equals(format) || FORMAT_PROMETHEUS.equals(format);
+    }
+
+    /**
+     * Returns the start time for a phase, to be passed to {@link #stop(String, long)}.
+     */
+    public long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since the given start time to a phase.
+     */
+    public void stop(final String phase, final long start)
+    {
+        getValue(phaseNanos, phase).addAndGet(System.nanoTime() - start);
+    }
+
+    public void increment(final String counter)
+    {
+        add(counter, 1L);
+    }
+
+    public void add(final String counter, final long delta)
+    {
+        getValue(counters, counter).addAndGet(delta);
+    }
+
+    public long getCount(final String counter)
+    {
+        return getValue(counters, counter).get();
+    }
+
+    public long getMillis(final String phase)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(getValue(phaseNanos, phase).get());
+    }
+
+    /**
+     * Marks the end of the run.
+     */
+    public void finish()
+    {
+        endNanos = System.nanoTime();
+        endCpuNanos = getProcessCpuNanos();
+
+        long peak = 0L;
+        final List pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (int i = 0; i < pools.size(); i++) {
+            final MemoryPoolMXBean pool = (MemoryPoolMXBean) pools.get(i);
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        jvmPeakHeapBytes = peak;
+    }
+
+    /**
+     * Returns the sum of the peak usage of all heap pools since the start of the JVM or -1 if the run did not end yet.
+     */
+    public long getJvmPeakHeapBytes()
+    {
+        return jvmPeakHeapBytes;
+    }
+
+    /**
+     * Returns the CPU time the JVM used during the run or -1 if the run did not end yet or the JVM does not report its CPU time.
+     */
+    public long getCpuMillis()
+    {
+        if (endCpuNanos < 0 || startCpuNanos < 0) {
+            return -1L;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(endCpuNanos - startCpuNanos);
+    }
+
+    private static long getProcessCpuNanos()
+    {
+        if (PROCESS_CPU_TIME == null) {
+            return -1L;
+        }
+        try {
+            return ((Long) PROCESS_CPU_TIME.invoke(ManagementFactory.getOperatingSystemMXBean(), new Object[0])).longValue();
+        }
+        catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    private static Method findProcessCpuTime()
+    {
+        try {
+            final Class osClass = Class.forName("com.sun.management.OperatingSystemMXBean");
+            final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (osClass.isInstance(os)) {
+                return osClass.getMethod("getProcessCpuTime", new Class[0]);
+            }
+        }
+        catch (Exception e) {
+            // Not a JVM that reports its CPU time.
+        }
+        return null;
+    }
+
+    /**
+     * Returns the time from the creation of this object until the end of the run (or until now, if the run did not end yet).
+     */
+    public long getTotalMillis()
+    {
+        final long end = endNanos < 0 ? System.nanoTime() : endNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * Returns a summary of all phases and counters, one per line.
+     */
+    public String getSummary()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("Plugin run took ").append(getTotalMillis()).append(" ms");
+        for (Iterator it = phaseNanos.keySet().iterator(); it.hasNext();) {
+            final String phase = (String) it.next();
+            sb.append("\n  ").append(phase).append(": ").append(getMillis(phase)).append(" ms");
+        }
+        for (Iterator it = counters.keySet().iterator(); it.hasNext();) {
+            final String counter = (String) it.next();
+            sb.append("\n  ").append(counter).append(": ").append(getCount(counter));
+        }
+        sb.append("\n  jvmPeakHeap: ").append(jvmPeakHeapBytes < 0 ? "unknown" : (jvmPeakHeapBytes >> 20) + " MB");
+        sb.append("\n  cpu: ").append(getCpuMillis() < 0 ? "unknown" : getCpuMillis() + " ms")
+          .append(" on ").append(Runtime.getRuntime().availableProcessors()).append(" processors");
+        return sb.toString();
+    }
+
+    /**
+     * Writes all phases and counters to a file, either as a JSON object or in the Prometheus text format. Every sample is labeled
+     * with the given project id.
+     */
+    public void write(final File file, final String format, final String project)
+        throws IOException
+    {
+        final String content;
+        if (FORMAT_JSON.equals(format)) {
+            content = toJson(project);
+        }
+        else if (FORMAT_PROMETHEUS.equals(format)) {
+            content = toPrometheus(project);
+        }
+        else {
+            throw new IllegalArgumentException("Unknown metrics format '" + format + "'");
+        }
+
+        Files.createParentDirs(file);
+        Files.asCharSink(file, Charsets.UTF_8).write(content);
+    }
+
+    private String toJson(final String project)
+    {
+        final StringBuilder sb = new StringBuilder("{\"project\":\"").append(escape(project)).append("\"");
+        sb.append(",\"totalMillis\":").append(getTotalMillis());
+        sb.append(",\"jvmPeakHeapBytes\":").append(jvmPeakHeapBytes);
+        sb.append(",\"cpuMillis\":").append(getCpuMillis());
+        sb.append(",\"processors\":").append(Runtime.getRuntime().availableProcessors());
+        sb.append(",\"phaseMillis\":{");
+        for (Iterator it = phaseNanos.keySet().iterator(); it.hasNext();) {
+            final String phase = (String) it.next();
+            sb.append('"').append(phase).append("\":").append(getMillis(phase));
+            if (it.hasNext()) {
+                sb.append(',');
+            }
+        }
+        sb.append("},\"counters\":{");
+        for (Iterator it = counters.keySet().iterator(); it.hasNext();) {
+            final String counter = (String) it.next();
+            sb.append('"').append(counter).append("\":").append(getCount(counter));
+            if (it.hasNext()) {
+                sb.append(',');
+            }
+        }
+        sb.append("}}\n");
+        return sb.toString();
+    }
+
+    private String toPrometheus(final String project)
+    {
+        final String label = "project=\"" + escape(project) + "\"";
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP ").append(METRIC_PREFIX).append("run_seconds Time of the whole plugin run.\n");
+        sb.append("# TYPE ").append(METRIC_PREFIX).append("run_seconds gauge\n");
+        sb.append(METRIC_PREFIX).append("run_seconds{").append(label).append("} ").append(getTotalMillis() / 1000.0).append('\n');
+
+        sb.append("# HELP ").append(METRIC_PREFIX).append("jvm_peak_heap_bytes Peak heap usage of the JVM since its start.\n");
+        sb.append("# TYPE ").append(METRIC_PREFIX).append("jvm_peak_heap_bytes gauge\n");
+        sb.append(METRIC_PREFIX).append("jvm_peak_heap_bytes{").append(label).append("} ").append(jvmPeakHeapBytes).append('\n');
+
+        sb.append("# HELP ").append(METRIC_PREFIX).append("cpu_seconds CPU time the JVM used during the run.\n");
+        sb.append("# TYPE ").append(METRIC_PREFIX).append("cpu_seconds gauge\n");
+        sb.append(METRIC_PREFIX).append("cpu_seconds{").append(label).append("} ").append(getCpuMillis() / 1000.0).append('\n');
+
+        sb.append("# HELP ").append(METRIC_PREFIX).append("phase_seconds Time all threads spent in a phase of the run.\n");
+        sb.append("# TYPE ").append(METRIC_PREFIX).append("phase_seconds gauge\n");
+        for (Iterator it = phaseNanos.keySet().iterator(); it.hasNext();) {
+            final String phase = (String) it.next();
+            sb.append(METRIC_PREFIX).append("phase_seconds{").append(label).append(",phase=\"").append(phase).append("\"} ")
+              .append(getMillis(phase) / 1000.0).append('\n');
+        }
+
+        for (Iterator it = counters.keySet().iterator(); it.hasNext();) {
+            final String counter = (String) it.next();
+            final String name = METRIC_PREFIX + toSnakeCase(counter) + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append('{').append(label).append("} ").append(getCount(counter)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String toSnakeCase(final String name)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                sb.append('_').append(Character.toLowerCase(c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String escape(final String value)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            }
+            else if (c == '\n') {
+                sb.append("\\n");
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static AtomicLong getValue(final Map values, final String name)
+    {
+        final AtomicLong value = (AtomicLong) values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown metric '" + name + "'");
+        }
+        return value;
+    }
+}
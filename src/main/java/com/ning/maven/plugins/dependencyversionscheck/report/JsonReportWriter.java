@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+/**
+ * Writes the report as a single JSON object. Every dependency is written on its own line.
+ */
+class JsonReportWriter extends ReportWriter
+{
+    JsonReportWriter(final Writer writer)
+    {
+        super(writer);
+    }
+
+    protected void writeHeader(final String project, final String scope)
+        throws IOException
+    {
+        writer.write("{\"project\":");
+        writeString(project);
+        writer.write(",\"scope\":");
+        writeString(scope);
+        writer.write(",\"dependencies\":[");
+    }
+
+    protected void writeDependency(final ResolutionAggregate aggregate, final boolean first)
+        throws IOException
+    {
+        if (!first) {
+            writer.write(',');
+        }
+        writer.write("\n{\"name\":");
+        writeString(aggregate.getDependencyName());
+        writer.write(",\"resolvedVersion\":");
+        writeVersion(aggregate.getActualVersion());
+        writer.write(",\"direct\":");
+        writer.write(String.valueOf(aggregate.isDirectDependency()));
+        writer.write(",\"expectedVersion\":");
+        writeVersion(aggregate.getDirectExpectedVersion());
+        writer.write(",\"conflict\":");
+        writer.write(String.valueOf(aggregate.isConflict()));
+        writer.write(",\"expectations\":[");
+
+        for (Iterator it = aggregate.getExpectations().values().iterator(); it.hasNext();) {
+            final ResolutionAggregate.Expectation expectation = (ResolutionAggregate.Expectation) it.next();
+
+            writer.write("{\"version\":");
+            writeVersion(expectation.getExpectedVersion());
+            writer.write(",\"direct\":");
+            writer.write(String.valueOf(expectation.isDirectDependency()));
+            writer.write(",\"conflict\":");
+            writer.write(String.valueOf(expectation.isConflict()));
+            writer.write(",\"dependents\":[");
+            for (Iterator dependentIt = expectation.getDependents().iterator(); dependentIt.hasNext();) {
+                writeString((String) dependentIt.next());
+                if (dependentIt.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write("]}");
+            if (it.hasNext()) {
+                writer.write(',');
+            }
+        }
+        writer.write("]}");
+    }
+
+    protected void writeFooter(final int dependencies, final int conflicts, final boolean complete)
+        throws IOException
+    {
+        try {
+            writer.write("\n],\"dependencyCount\":");
+            writer.write(String.valueOf(dependencies));
+            writer.write(",\"conflictCount\":");
+            writer.write(String.valueOf(conflicts));
+            writer.write(",\"complete\":");
+            writer.write(String.valueOf(complete));
+            writer.write("}\n");
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private void writeVersion(final Version version)
+        throws IOException
+    {
+        writeString(version == null ? null : version.getSelectedVersion());
+    }
+
+    private void writeString(final String value)
+        throws IOException
+    {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", Integer.valueOf(c)));
+                    }
+                    else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
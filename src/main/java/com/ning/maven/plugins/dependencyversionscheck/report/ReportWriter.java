@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
+
+/**
+ * Writes the resolutions of all dependencies to a machine readable report. Every dependency is written as soon as it is passed in
+ * and nothing is kept afterwards, so the size of the report does not affect the memory used by the plugin. The schema of the
+ * supported formats is described in the README.
+ *
+ * This class is not thread safe.
+ */
+public abstract class ReportWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ReportWriter.class);
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_XML = "xml";
+
+    /** The report file, which the writer goes to. */
+    protected final Writer writer;
+    private File file;
+
+    private int dependencyCount = 0;
+    private int conflictCount = 0;
+
+    protected ReportWriter(final Writer writer)
+    {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns true if the given report format is supported.
+     */
+    public static boolean isSupported(final String format)
+    {
+        return FORMAT_JSON.equals(format) || FORMAT_XML.equals(format);
+    }
+
+    /**
+     * Opens a report in the given format and writes its header.
+     */
+    public static ReportWriter open(final String format, final File file, final String project, final String scope)
+        throws IOException
+    {
+        Files.createParentDirs(file);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8));
+
+        final ReportWriter reportWriter;
+        try {
+            if (FORMAT_JSON.equals(format)) {
+                reportWriter = new JsonReportWriter(writer);
+            }
+            else if (FORMAT_XML.equals(format)) {
+                reportWriter = new XmlReportWriter(writer);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown report format '" + format + "'");
+            }
+            reportWriter.file = file;
+            reportWriter.writeHeader(project, scope);
+        }
+        catch (IOException ioe) {
+            writer.close();
+            throw ioe;
+        }
+        catch (RuntimeException re) {
+            writer.close();
+            throw re;
+        }
+        return reportWriter;
+    }
+
+    /**
+     * Writes a single dependency with all its expected versions.
+     */
+    public void write(final ResolutionAggregate aggregate)
+        throws IOException
+    {
+        writeDependency(aggregate, dependencyCount == 0);
+
+        dependencyCount++;
+        if (aggregate.isConflict()) {
+            conflictCount++;
+        }
+    }
+
+    /**
+     * Writes the summary, completes the report and closes the file. If the resolution was stopped early (e.g. by failFast),
+     * complete is false and the summary says so, as the report then only holds the dependencies that were checked until then.
+     */
+    public void close(final boolean complete)
+        throws IOException
+    {
+        writeFooter(dependencyCount, conflictCount, complete);
+    }
+
+    /**
+     * Closes the file without writing the summary and removes the incomplete report. Used when writing the report failed.
+     */
+    public void abort()
+    {
+        try {
+            writer.close();
+        }
+        catch (IOException ioe) {
+            // The report is removed anyway.
+        }
+        if (!file.delete()) {
+            LOG.debug("Could not remove the incomplete report {}", file);
+        }
+    }
+
+    public int getDependencyCount()
+    {
+        return dependencyCount;
+    }
+
+    public int getConflictCount()
+    {
+        return conflictCount;
+    }
+
+    protected abstract void writeHeader(String project, String scope) throws IOException;
+
+    protected abstract void writeDependency(ResolutionAggregate aggregate, boolean first) throws IOException;
+
+    protected abstract void writeFooter(int dependencies, int conflicts, boolean complete) throws IOException;
+}
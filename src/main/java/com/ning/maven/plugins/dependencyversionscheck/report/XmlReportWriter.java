@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+/**
+ * Writes the report as an XML document through a StAX writer.
+ */
+class XmlReportWriter extends ReportWriter
+{
+    private final XMLStreamWriter xml;
+
+    XmlReportWriter(final Writer writer)
+        throws IOException
+    {
+        super(writer);
+        try {
+            this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+        }
+        catch (XMLStreamException xse) {
+            throw toIOException(xse);
+        }
+    }
+
+    protected void writeHeader(final String project, final String scope)
+        throws IOException
+    {
+        try {
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("dependencyVersionsReport");
+            writeAttribute("project", project);
+            writeAttribute("scope", scope);
+        }
+        catch (XMLStreamException xse) {
+            throw toIOException(xse);
+        }
+    }
+
+    protected void writeDependency(final ResolutionAggregate aggregate, final boolean first)
+        throws IOException
+    {
+        try {
+            xml.writeCharacters("\n  ");
+            xml.writeStartElement("dependency");
+            writeAttribute("name", aggregate.getDependencyName());
+            writeAttribute("resolvedVersion", aggregate.getActualVersion());
+            writeAttribute("direct", String.valueOf(aggregate.isDirectDependency()));
+            writeAttribute("expectedVersion", aggregate.getDirectExpectedVersion());
+            writeAttribute("conflict", String.valueOf(aggregate.isConflict()));
+
+            for (Iterator it = aggregate.getExpectations().values().iterator(); it.hasNext();) {
+                final ResolutionAggregate.Expectation expectation = (ResolutionAggregate.Expectation) it.next();
+
+                xml.writeCharacters("\n    ");
+                xml.writeStartElement("expectation");
+                writeAttribute("version", expectation.getExpectedVersion());
+                writeAttribute("direct", String.valueOf(expectation.isDirectDependency()));
+                writeAttribute("conflict", String.valueOf(expectation.isConflict()));
+                for (Iterator dependentIt = expectation.getDependents().iterator(); dependentIt.hasNext();) {
+                    final String dependent = (String) dependentIt.next();
+                    if (dependent != null) {
+                        xml.writeStartElement("dependent");
+                        xml.writeCharacters(dependent);
+                        xml.writeEndElement();
+                    }
+                }
+                xml.writeEndElement();
+            }
+            xml.writeCharacters("\n  ");
+            xml.writeEndElement();
+        }
+        catch (XMLStreamException xse) {
+            throw toIOException(xse);
+        }
+    }
+
+    protected void writeFooter(final int dependencies, final int conflicts, final boolean complete)
+        throws IOException
+    {
+        try {
+            xml.writeCharacters("\n  ");
+            xml.writeEmptyElement("summary");
+            xml.writeAttribute("dependencies", String.valueOf(dependencies));
+            xml.writeAttribute("conflicts", String.valueOf(conflicts));
+            xml.writeAttribute("complete", String.valueOf(complete));
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+            writer.write('\n');
+        }
+        catch (XMLStreamException xse) {
+            throw toIOException(xse);
+        }
+        finally {
+            // XMLStreamWriter.close() does not close the underlying writer.
+            writer.close();
+        }
+    }
+
+    private void writeAttribute(final String name, final Version version)
+        throws XMLStreamException
+    {
+        writeAttribute(name, version == null ? null : version.getSelectedVersion());
+    }
+
+    private void writeAttribute(final String name, final String value)
+        throws XMLStreamException
+    {
+        if (value != null) {
+            xml.writeAttribute(name, value);
+        }
+    }
+
+    private static IOException toIOException(final XMLStreamException xse)
+    {
+        final IOException ioe = new IOException(xse.getMessage());
+        ioe.initCause(xse);
+        return ioe;
+    }
+}
@@ -45,11 +45,8 @@ public class APRVersionStrategy implements Strategy
     public final boolean isCompatible(final Version versionA, final Version versionB)
     {
         LOG.debug("Is {} compatible to {}... ", versionA, versionB);
-        final VersionElement[] versionAElements = versionA.getVersionElements();
-        final VersionElement[] versionBElements = versionB.getVersionElements();
-
-        final AprVersion aprVersionA = getAprVersion(versionAElements);
-        final AprVersion aprVersionB = getAprVersion(versionBElements);
+        final AprVersion aprVersionA = getAprVersion(versionA);
+        final AprVersion aprVersionB = getAprVersion(versionB);
 
         return checkCompatible(aprVersionA, aprVersionB);
     }
@@ -81,33 +78,39 @@ public class APRVersionStrategy implements Strategy
         return res;
     }
 
-    private AprVersion getAprVersion(final VersionElement[] versionElements)
+    private AprVersion getAprVersion(final Version version)
     {
-        if (versionElements.length < 2) {
+        if (version.getElementCount() < 2) {
             return null;
         }
 
-        if (!(versionElements[0].isNumber()
-              && versionElements[0].hasDot()
-              && versionElements[1].isNumber())) {
+        if (!(version.isNumber(0)
+              && version.hasDot(0)
+              && version.isNumber(1))) {
             return null;
         }
 
-        final long major = versionElements[0].getNumber();
-        final long minor = versionElements[1].getNumber();
+        final long major = version.getNumber(0);
+        final long minor = version.getNumber(1);
 
         long patch = 0;
         int qualifierStart = 1;
 
-        if (versionElements.length > 2) {
-            if (versionElements[1].hasDot() && versionElements[2].isNumber()) {
-                patch = versionElements[2].getNumber();
+        if (version.getElementCount() > 2) {
+            if (version.hasDot(1) && version.isNumber(2)) {
+                patch = version.getNumber(2);
                 qualifierStart = 2;
             }
         }
 
-        StringBuffer qualifier = new StringBuffer();
-        while (!versionElements[qualifierStart++].hasEndOfVersion()) {
+        // Most versions have no qualifier, so only build one if there is one.
+        if (version.hasEndOfVersion(qualifierStart)) {
+            return new AprVersion(major, minor, patch, "");
+        }
+
+        final VersionElement[] versionElements = version.getVersionElements();
+        final StringBuilder qualifier = new StringBuilder();
+        while (qualifierStart + 1 < version.getElementCount() && !version.hasEndOfVersion(qualifierStart++)) {
             qualifier.append(versionElements[qualifierStart]);
         }
 
@@ -20,7 +20,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ning.maven.plugins.dependencyversionscheck.version.Version;
-import com.ning.maven.plugins.dependencyversionscheck.version.VersionElement;
 
 /**
  * This is the default versioning strategy used by previous versions of the plugin.
@@ -41,18 +40,13 @@ public class DefaultVersionStrategy implements Strategy
     public boolean isCompatible(final Version versionA, final Version versionB)
     {
         LOG.debug("Is {} compatible to {}... ", versionA, versionB);
-        final VersionElement[] versionAElements = versionA.getVersionElements();
-        final VersionElement[] versionBElements = versionB.getVersionElements();
 
-        int lenToCheck = Math.min(versionAElements.length, versionBElements.length);
+        int lenToCheck = Math.min(versionA.getElementCount(), versionB.getElementCount());
 
         for (int i = 0; i < lenToCheck; i++) {
-            final VersionElement versionAElement = versionAElements[i];
-            final VersionElement versionBElement = versionBElements[i];
-
-            if (versionAElement.hasNumbers() && versionBElement.hasNumbers()) {
-                long versionANumber = versionAElement.getNumber();
-                long versionBNumber = versionBElement.getNumber();
+            if (versionA.hasNumbers(i) && versionB.hasNumbers(i)) {
+                long versionANumber = versionA.getNumber(i);
+                long versionBNumber = versionB.getNumber(i);
 
                 if (versionANumber < versionBNumber) {
                     LOG.debug("... no!");
@@ -63,13 +57,13 @@ public class DefaultVersionStrategy implements Strategy
                     return true;
                 }
             }
-            else if (!versionAElement.getElement().equals(versionBElement.getElement())) {
+            else if (!versionA.getElement(i).equals(versionB.getElement(i))) {
                 LOG.debug("... no!");
                 return false;
             }
         }
 
-        final boolean result = versionAElements.length >= versionBElements.length;
+        final boolean result = versionA.getRawElements().length >= versionB.getRawElements().length;
         LOG.debug("... {}!", result ? "yes" : "no");
         return result;
 
@@ -20,7 +20,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ning.maven.plugins.dependencyversionscheck.version.Version;
-import com.ning.maven.plugins.dependencyversionscheck.version.VersionElement;
 
 /**
  *
@@ -42,10 +41,7 @@ public class SingleDigitVersionStrategy implements Strategy
     public boolean isCompatible(final Version versionA, final Version versionB)
     {
         LOG.debug("Is {} compatible to {}... ", versionA, versionB);
-        final VersionElement[] versionAElements = versionA.getVersionElements();
-        final VersionElement[] versionBElements = versionB.getVersionElements();
-
-        final boolean res = versionAElements[0].getNumber() >= versionBElements[0].getNumber();
+        final boolean res = versionA.getNumber(0) >= versionB.getNumber(0);
         LOG.debug("... {}.", res ? "yes" : "no");
         return res;
     }
@@ -35,6 +35,12 @@ public class ArtifactScopeFilter implements ArtifactFilter
         this.scopes = scopes;
     }
 
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public String[] getScopes()
+    {
+        return scopes;
+    }
+
     public boolean include(Artifact artifact)
     {
         for (int i = 0; i < scopes.length; i++) {
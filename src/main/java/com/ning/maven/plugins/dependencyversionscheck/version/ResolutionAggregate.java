@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.version;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Collects all version resolutions of a single dependency. Instead of keeping every resolution, it only keeps the
+ * distinct actual versions and the expected versions with the artifacts that expect them, so adding a resolution
+ * does not depend on the number of resolutions that were already added.
+ *
+ * This class is not thread safe.
+ */
+public class ResolutionAggregate
+{
+    private final String dependencyName;
+
+    /** All distinct actual versions, in the order they were added. Usually there is exactly one. */
+    private final Set actualVersions = new LinkedHashSet();
+
+    /** Selected expected version to Expectation. */
+    private final Map expectations = new HashMap();
+
+    /** The version the project itself declared, if it is a direct dependency. */
+    private Version directExpectedVersion = null;
+
+    private int resolutionCount = 0;
+    private int conflictCount = 0;
+
+    public ResolutionAggregate(final String dependencyName)
+    {
+        this.dependencyName = dependencyName;
+    }
+
+    /**
+     * Adds a resolution. Returns false if the resolution resolved to a different actual version than the ones added before.
+     */
+    public boolean add(final VersionResolution resolution)
+    {
+        final boolean consistent = actualVersions.add(resolution.getActualVersion()) ? actualVersions.size() == 1 : true;
+
+        final String expectedKey = resolution.getExpectedVersion().getSelectedVersion();
+        Expectation expectation = (Expectation) expectations.get(expectedKey);
+        if (expectation == null) {
+            expectation = new Expectation(resolution.getExpectedVersion());
+            expectations.put(expectedKey, expectation);
+        }
+
+        if (resolution.isDirectDependency()) {
+            directExpectedVersion = resolution.getExpectedVersion();
+            expectation.directDependency = true;
+        }
+        else {
+            expectation.dependents.add(resolution.getDependentName());
+        }
+
+        if (resolution.isConflict()) {
+            expectation.conflict = true;
+            conflictCount++;
+        }
+
+        resolutionCount++;
+        return consistent;
+    }
+
+    public String getDependencyName()
+    {
+        return dependencyName;
+    }
+
+    /**
+     * Returns the version that the dependency was resolved to.
+     */
+    public Version getActualVersion()
+    {
+        return actualVersions.isEmpty() ? null : (Version) actualVersions.iterator().next();
+    }
+
+    public Set getActualVersions()
+    {
+        return Collections.unmodifiableSet(actualVersions);
+    }
+
+    /**
+     * Returns true if the dependency is a direct dependency of the project.
+     */
+    public boolean isDirectDependency()
+    {
+        return directExpectedVersion != null;
+    }
+
+    /**
+     * Returns the version the project declared for a direct dependency or null.
+     */
+    public Version getDirectExpectedVersion()
+    {
+        return directExpectedVersion;
+    }
+
+    public boolean isConflict()
+    {
+        return conflictCount > 0;
+    }
+
+    public int getConflictCount()
+    {
+        return conflictCount;
+    }
+
+    public int getResolutionCount()
+    {
+        return resolutionCount;
+    }
+
+    /**
+     * Returns all expectations, ordered by expected version.
+     */
+    public SortedMap getExpectations()
+    {
+        final SortedMap result = new TreeMap();
+        for (Iterator it = expectations.values().iterator(); it.hasNext();) {
+            final Expectation expectation = (Expectation) it.next();
+            result.put(expectation.getExpectedVersion(), expectation);
+        }
+        return result;
+    }
+
+    /**
+     * All resolutions of a dependency that expect the same version.
+     */
+    public static final class Expectation
+    {
+        private final Version expectedVersion;
+        private final Set dependents = new HashSet();
+        private boolean directDependency = false;
+        private boolean conflict = false;
+
+        private Expectation(final Version expectedVersion)
+        {
+            this.expectedVersion = expectedVersion;
+        }
+
+        public Version getExpectedVersion()
+        {
+            return expectedVersion;
+        }
+
+        /**
+         * Returns the names of all artifacts (other than the project itself) that expect this version, ordered by name.
+         */
+        public SortedSet getDependents()
+        {
+            return new TreeSet(dependents);
+        }
+
+        /**
+         * Returns true if the project itself expects this version.
+         */
+        public boolean isDirectDependency()
+        {
+            return directDependency;
+        }
+
+        /**
+         * Returns true if any resolution of this version is a conflict.
+         */
+        public boolean isConflict()
+        {
+            return conflict;
+        }
+    }
+}
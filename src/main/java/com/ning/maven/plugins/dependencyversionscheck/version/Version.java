@@ -16,14 +16,24 @@
 
 package com.ning.maven.plugins.dependencyversionscheck.version;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.builder.EqualsBuilder;
-import org.apache.commons.lang.builder.HashCodeBuilder;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
- * Represents an artifact version.
+ * Represents an artifact version. Versions are immutable; use {@link #of(String, String)} to get a canonical
+ * instance that is shared by everyone asking for the same version.
  */
 public final class Version implements Comparable
 {
@@ -48,6 +58,21 @@ public final class Version implements Comparable
     public static final long OTHER_DIVIDER = 0x08;
     public static final long END_OF_VERSION = 0x10;
 
+    /**
+     * Canonical instances of all versions that are in use. The pool only holds weak references, so versions that are
+     * no longer referenced anywhere else can be collected.
+     */
+    private static final Cache POOL = CacheBuilder.newBuilder().weakValues().recordStats().build();
+
+    /** Element strings are shared between all versions. */
+    private static final Interner TOKENS = Interners.newWeakInterner();
+
+    private static final int DIVIDER_SHIFT = 16;
+    private static final int FLAGS_MASK = (1 << DIVIDER_SHIFT) - 1;
+
+    /** Marks a number that does not fit into a long. Numbers are never negative. */
+    private static final long NUMBER_OVERFLOW = -1L;
+
     private final String rawVersion;
     private final String selectedVersion;
 
@@ -56,6 +81,64 @@ public final class Version implements Comparable
 
     private final int elementCount;
 
+    // Packed representation of the version elements, used by the strategies to compare versions without
+    // allocating. Only the first elementCount entries are valid.
+
+    /** Numeric value of every element (all digits of an element concatenated). */
+    private final long[] numbers;
+
+    /** Element flags in the lower and divider flags in the upper half. */
+    private final int[] packedFlags;
+
+    /** Interned element strings. */
+    private final String[] elements;
+
+    /** Divider chars following the elements. */
+    private final char[] dividerChars;
+
+    /**
+     * Returns the canonical instance for a version.
+     */
+    public static Version of(final String versionStr)
+    {
+        return of(versionStr, versionStr);
+    }
+
+    /**
+     * Returns the canonical instance for a version that was selected from a version specification. Every
+     * distinct version is parsed only once.
+     */
+    public static Version of(final String rawVersion, final String selectedVersion)
+    {
+        if (StringUtils.isBlank(rawVersion) || StringUtils.isBlank(selectedVersion)) {
+            throw new NullPointerException("Version cannot be null");
+        }
+
+        final String key = rawVersion.equals(selectedVersion) ? rawVersion : rawVersion + "\n" + selectedVersion;
+        try {
+            return (Version) POOL.get(key, new Callable() {
+                public Object call()
+                {
+                    return new Version(rawVersion, selectedVersion);
+                }
+            });
+        }
+        catch (ExecutionException ee) {
+            throw Throwables.propagate(ee.getCause());
+        }
+        catch (UncheckedExecutionException uee) {
+            throw Throwables.propagate(uee.getCause());
+        }
+    }
+
+    /**
+     * Returns the hit rate of the version pool.
+     */
+    public static CacheStats poolStats()
+    {
+        return POOL.stats();
+    }
+
     public Version(final String versionStr)
     {
         this(versionStr, versionStr);
@@ -72,6 +155,10 @@ public final class Version implements Comparable
 
         rawElements = StringUtils.splitPreserveAllTokens(selectedVersion, "-._");
         versionElements = new VersionElement[rawElements.length];
+        numbers = new long[rawElements.length];
+        packedFlags = new int[rawElements.length];
+        elements = new String[rawElements.length];
+        dividerChars = new char[rawElements.length];
 
         // Position of the next splitter to look at.
         int charPos = 0;
@@ -152,7 +239,12 @@ public final class Version implements Comparable
                     }
                 }
 
-                versionElements[resultPos++] = new VersionElement(element, flags, divider, dividerChar);
+                numbers[resultPos] = parseNumber(element);
+                packedFlags[resultPos] = (int) flags | ((int) divider << DIVIDER_SHIFT);
+                elements[resultPos] = (String) TOKENS.intern(element);
+                dividerChars[resultPos] = dividerChar;
+                versionElements[resultPos] = new VersionElement(elements[resultPos], flags, divider, dividerChar);
+                resultPos++;
             }
         }
 
@@ -176,6 +268,81 @@ public final class Version implements Comparable
         return elementCount;
     }
 
+    /**
+     * Returns the numeric value of an element, 0 if it contains no digits. Same as {@link VersionElement#getNumber()}.
+     */
+    public long getNumber(final int index)
+    {
+        if (numbers[index] == NUMBER_OVERFLOW) {
+            // Same as Long.parseLong() called by VersionElement#getNumber().
+            throw new NumberFormatException("Number in version element '" + elements[index] + "' is too large");
+        }
+        return numbers[index];
+    }
+
+    public String getElement(final int index)
+    {
+        return elements[index];
+    }
+
+    public long getFlags(final int index)
+    {
+        return packedFlags[index] & FLAGS_MASK;
+    }
+
+    public long getDivider(final int index)
+    {
+        return packedFlags[index] >>> DIVIDER_SHIFT;
+    }
+
+    public char getDividerChar(final int index)
+    {
+        return dividerChars[index];
+    }
+
+    public boolean hasNumbers(final int index)
+    {
+        return (getFlags(index) & NUMBERS) != 0;
+    }
+
+    public boolean isNumber(final int index)
+    {
+        return (getFlags(index) & ALL_NUMBERS) != 0;
+    }
+
+    public boolean hasLetters(final int index)
+    {
+        return (getFlags(index) & LETTERS) != 0;
+    }
+
+    public boolean hasDot(final int index)
+    {
+        return (getDivider(index) & DOT_DIVIDER) != 0;
+    }
+
+    public boolean hasEndOfVersion(final int index)
+    {
+        return (getDivider(index) & END_OF_VERSION) != 0;
+    }
+
+    /**
+     * Parses all digits of an element into a number. Returns NUMBER_OVERFLOW if the number does not fit into a long.
+     */
+    private static long parseNumber(final String element)
+    {
+        long result = 0L;
+        for (int i = 0; i < element.length(); i++) {
+            if (Character.isDigit(element.charAt(i))) {
+                final int digit = Character.digit(element.charAt(i), 10);
+                if (result > (Long.MAX_VALUE - digit) / 10) {
+                    return NUMBER_OVERFLOW;
+                }
+                result = result * 10 + digit;
+            }
+        }
+        return result;
+    }
+
     public String getRawVersion()
     {
         return rawVersion;
@@ -201,23 +368,17 @@ public final class Version implements Comparable
             return true;
         }
 
-        Version castOther = (Version) other;
-        return new EqualsBuilder().append(rawVersion, castOther.rawVersion)
-            .append(selectedVersion, castOther.selectedVersion)
-            .append(rawElements, castOther.rawElements)
-            .append(versionElements, castOther.versionElements)
-            .append(elementCount, castOther.elementCount)
-            .isEquals();
+        // All elements are derived from the selected version, so comparing the strings is sufficient.
+        final Version castOther = (Version) other;
+        return rawVersion.equals(castOther.rawVersion) && selectedVersion.equals(castOther.selectedVersion);
     }
 
-
-
     private transient int hashCode;
 
     public int hashCode()
     {
         if (hashCode == 0) {
-            hashCode = new HashCodeBuilder().append(rawVersion).append(selectedVersion).append(rawElements).append(versionElements).append(elementCount).toHashCode();
+            hashCode = 31 * rawVersion.hashCode() + selectedVersion.hashCode();
         }
         return hashCode;
     }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ning.maven.plugins.dependencyversionscheck.strategy.DefaultVersionStrategy;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.Strategy;
+
+public class ResolverMatcherTest
+{
+    private final Strategy first = new DefaultVersionStrategy();
+    private final Strategy second = new DefaultVersionStrategy();
+    private final Strategy third = new DefaultVersionStrategy();
+
+    private final ResolverMatcher matcher = new ResolverMatcher();
+
+    @Test
+    public void testExactMatchesWin()
+    {
+        matcher.add("org.apache*", first);
+        matcher.add("org.apache.maven", second);
+        matcher.add("org.apache.maven:maven-core", third);
+
+        Assert.assertSame(third, matcher.match("org.apache.maven:maven-core"));
+        Assert.assertSame(second, matcher.match("org.apache.maven:maven-model"));
+        Assert.assertSame(first, matcher.match("org.apache.commons:commons-lang3"));
+        Assert.assertNull(matcher.match("com.google.guava:guava"));
+    }
+
+    @Test
+    public void testFirstWildcardWins()
+    {
+        // The more specific include is stored deeper in the trie, but the order of the includes decides.
+        matcher.add("org.*", first);
+        matcher.add("org.apache.*:maven-*", second);
+        matcher.add("*:maven-core", third);
+
+        Assert.assertSame(first, matcher.match("org.apache.maven:maven-core"));
+        Assert.assertSame(third, matcher.match("com.example:maven-core"));
+
+        final ResolverMatcher reversed = new ResolverMatcher();
+        reversed.add("*:maven-core", third);
+        reversed.add("org.apache.*:maven-*", second);
+        reversed.add("org.*", first);
+
+        Assert.assertSame(third, reversed.match("org.apache.maven:maven-core"));
+        Assert.assertSame(second, reversed.match("org.apache.maven:maven-model"));
+        Assert.assertSame(first, reversed.match("org.codehaus.plexus:plexus-utils"));
+    }
+
+    @Test
+    public void testWildcards()
+    {
+        matcher.add("com.*foo", first);
+        matcher.add("org.apache*", second);
+        matcher.add("*:*-api", third);
+
+        // A wildcard does not match the ":" between group and artifact.
+        Assert.assertNull(matcher.match("com.example:foo"));
+        Assert.assertSame(first, matcher.match("com.example.foo:bar"));
+        // Everything but the wildcard is taken literally.
+        Assert.assertNull(matcher.match("orgXapache:commons"));
+        Assert.assertSame(second, matcher.match("org.apache:commons"));
+        Assert.assertSame(third, matcher.match("javax.servlet:servlet-api"));
+        Assert.assertNull(matcher.match("javax.servlet:servlet-api-impl"));
+    }
+
+    @Test
+    public void testTypeAndClassifier()
+    {
+        matcher.add("org.apache*", first);
+        matcher.add("org.apache.maven:maven-core:jar:tests", second);
+
+        Assert.assertSame(second, matcher.match("org.apache.maven:maven-core:jar:tests"));
+        Assert.assertNull(matcher.match("org.apache.maven:maven-core:jar:sources"));
+    }
+
+    @Test
+    public void testReplace()
+    {
+        Assert.assertNull(matcher.add("org.*", first));
+        Assert.assertNull(matcher.add("*:maven-core", second));
+        Assert.assertNull(matcher.add("org.apache", first));
+
+        // A replaced wildcard include keeps its position.
+        Assert.assertSame(first, matcher.add("org.*", third));
+        Assert.assertSame(first, matcher.add("org.apache", second));
+
+        Assert.assertSame(third, matcher.match("org.codehaus:maven-core"));
+        Assert.assertSame(second, matcher.match("org.apache:maven-core"));
+    }
+}
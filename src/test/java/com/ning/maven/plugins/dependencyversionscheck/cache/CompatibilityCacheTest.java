@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.DefaultVersionStrategy;
+import com.ning.maven.plugins.dependencyversionscheck.strategy.Strategy;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+
+public class CompatibilityCacheTest
+{
+    private final RunMetrics metrics = new RunMetrics();
+
+    @Test
+    public void testDecisionIsRemembered()
+    {
+        final CountingStrategy strategy = new CountingStrategy();
+        final CompatibilityCache cache = new CompatibilityCache(100);
+
+        Assert.assertTrue(cache.isCompatible(strategy, Version.of("1.1"), Version.of("1.0"), metrics));
+        Assert.assertTrue(cache.isCompatible(strategy, new Version("1.1"), new Version("1.0"), metrics));
+        Assert.assertFalse(cache.isCompatible(strategy, Version.of("1.0"), Version.of("1.1"), metrics));
+        Assert.assertFalse(cache.isCompatible(strategy, Version.of("1.0"), Version.of("1.1"), metrics));
+
+        Assert.assertEquals(2, strategy.calls);
+        Assert.assertEquals(2L, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testKeys()
+    {
+        final CountingStrategy strategy = new CountingStrategy();
+        final CountingStrategy otherStrategy = new CountingStrategy();
+        final CompatibilityCache cache = new CompatibilityCache(100);
+
+        cache.isCompatible(strategy, Version.of("1.1"), Version.of("1.0"), metrics);
+        // Strategies are compared by identity, even if they have the same name.
+        cache.isCompatible(otherStrategy, Version.of("1.1"), Version.of("1.0"), metrics);
+        // A version selected from a range is not the same as the plain version.
+        cache.isCompatible(strategy, Version.of("[1.0,2.0)", "1.1"), Version.of("1.0"), metrics);
+
+        Assert.assertEquals(2, strategy.calls);
+        Assert.assertEquals(1, otherStrategy.calls);
+        Assert.assertEquals(0L, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testFailureIsNotRemembered()
+    {
+        final CountingStrategy strategy = new CountingStrategy();
+        final CompatibilityCache cache = new CompatibilityCache(100);
+
+        // The default strategy fails on numbers that do not fit into a long.
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.isCompatible(strategy, Version.of("1.99999999999999999999"), Version.of("1.0"), metrics);
+                Assert.fail("the strategy did not fail");
+            }
+            catch (NumberFormatException expected) {
+                // expected
+            }
+        }
+        Assert.assertEquals(2, strategy.calls);
+    }
+
+    @Test
+    public void testMaximumSize()
+    {
+        final CountingStrategy strategy = new CountingStrategy();
+        final CompatibilityCache cache = new CompatibilityCache(1);
+
+        cache.isCompatible(strategy, Version.of("1.1"), Version.of("1.0"), metrics);
+        cache.isCompatible(strategy, Version.of("1.2"), Version.of("1.0"), metrics);
+        cache.isCompatible(strategy, Version.of("1.1"), Version.of("1.0"), metrics);
+
+        Assert.assertEquals(3, strategy.calls);
+    }
+
+    private static final class CountingStrategy implements Strategy
+    {
+        private final Strategy strategy = new DefaultVersionStrategy();
+        private int calls;
+
+        public String getName()
+        {
+            return strategy.getName();
+        }
+
+        public boolean isCompatible(final Version versionA, final Version versionB)
+        {
+            calls++;
+            return strategy.isCompatible(versionA, versionB);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class FingerprintTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testInputs()
+    {
+        final String hash = new Fingerprint().add("dependency", "a:b:1").add("dependency", "c:d:1").getHash();
+
+        Assert.assertEquals(hash, new Fingerprint().add("dependency", "a:b:1").add("dependency", "c:d:1").getHash());
+        Assert.assertFalse(hash.equals(new Fingerprint().add("dependency", "c:d:1").add("dependency", "a:b:1").getHash()));
+        Assert.assertFalse(hash.equals(new Fingerprint().add("dependency", "a:b:2").add("dependency", "c:d:1").getHash()));
+        Assert.assertFalse(hash.equals(new Fingerprint().add("managed", "a:b:1").add("dependency", "c:d:1").getHash()));
+        Assert.assertFalse(hash.equals(new Fingerprint().add("dependency", "a:b:1").getHash()));
+    }
+
+    @Test
+    public void testInputsAreSeparated()
+    {
+        // Values are free text, e.g. the exceptions, and must not be able to spell out other inputs.
+        Assert.assertFalse(new Fingerprint().add("a", "b\n\u0000c=\u0000d").getHash().equals(new Fingerprint().add("a", "b").add("c", "d").getHash()));
+        Assert.assertFalse(new Fingerprint().add("a", "b\nc=d").getHash().equals(new Fingerprint().add("a", "b").add("c", "d").getHash()));
+        Assert.assertFalse(new Fingerprint().add("report", null).getHash().equals(new Fingerprint().add("report", "null ").getHash()));
+    }
+
+    @Test
+    public void testStore()
+        throws Exception
+    {
+        final File file = new File(folder.getRoot(), "target/check.fingerprint");
+        final Fingerprint fingerprint = new Fingerprint().add("dependency", "a:b:1");
+
+        Assert.assertFalse(fingerprint.matches(file));
+        fingerprint.store(file);
+        Assert.assertTrue(fingerprint.matches(file));
+        Assert.assertTrue(new Fingerprint().add("dependency", "a:b:1").matches(file));
+        Assert.assertFalse(new Fingerprint().add("dependency", "a:b:2").matches(file));
+
+        Files.asCharSink(file, Charsets.UTF_8).write("garbage");
+        Assert.assertFalse(fingerprint.matches(file));
+
+        Fingerprint.remove(file);
+        Assert.assertFalse(file.exists());
+        Assert.assertFalse(fingerprint.matches(file));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterHash()
+    {
+        final Fingerprint fingerprint = new Fingerprint().add("dependency", "a:b:1");
+        fingerprint.getHash();
+        fingerprint.add("dependency", "c:d:1");
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.project.ProjectBuildingException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+
+public class MissingArtifactCacheTest
+{
+    private static final long TTL = TimeUnit.DAYS.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MissingArtifactCache cache = new MissingArtifactCache();
+
+    @After
+    public void clearInterrupt()
+    {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void testNotFoundIsRemembered()
+    {
+        cache.putPomFailure("test:a:1", notFoundPom("test:a:1"), new Cancellation());
+        Assert.assertNotNull(cache.getPomFailure("test:a:1"));
+
+        final ArtifactNotFoundException notFound = notFound("test:b:1", null);
+        cache.putClosureFailure("test:b:1", notFound, new Cancellation());
+        Assert.assertSame(notFound, cache.getClosureFailure("test:b:1"));
+    }
+
+    @Test
+    public void testOtherFailuresAreNotRemembered()
+    {
+        cache.putPomFailure("test:a:1", new ProjectBuildingException("test:a", "broken pom"), new Cancellation());
+        Assert.assertNull(cache.getPomFailure("test:a:1"));
+
+        cache.putClosureFailure("test:b:1", new ArtifactResolutionException("transfer failed", "test", "b", "1", "jar", null, (Throwable) null),
+            new Cancellation());
+        Assert.assertNull(cache.getClosureFailure("test:b:1"));
+    }
+
+    @Test
+    public void testInterruptedFailuresAreNotRemembered()
+    {
+        final ProjectBuildingException interrupted = new ProjectBuildingException("test:a", "interrupted",
+            notFound("test:a:1", new InterruptedIOException()));
+        cache.putPomFailure("test:a:1", interrupted, new Cancellation());
+        Assert.assertNull(cache.getPomFailure("test:a:1"));
+
+        Thread.currentThread().interrupt();
+        cache.putPomFailure("test:b:1", notFoundPom("test:b:1"), new Cancellation());
+        Assert.assertNull(cache.getPomFailure("test:b:1"));
+    }
+
+    @Test
+    public void testCancelledFailuresAreNotRemembered()
+    {
+        final Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+        cache.putPomFailure("test:a:1", notFoundPom("test:a:1"), cancellation);
+        Assert.assertNull(cache.getPomFailure("test:a:1"));
+    }
+
+    @Test
+    public void testSnapshotsAreNotStored() throws Exception
+    {
+        cache.putPomFailure("test:a:1", notFoundPom("test:a:1"), new Cancellation());
+        cache.putPomFailure("test:b:1.0-SNAPSHOT", notFoundPom("test:b:1.0-SNAPSHOT"), new Cancellation());
+
+        final File file = new File(folder.getRoot(), "missing-poms");
+        cache.store(file, TTL);
+
+        final MissingArtifactCache loaded = new MissingArtifactCache();
+        loaded.load(file, TTL);
+        Assert.assertNotNull(loaded.getPomFailure("test:a:1"));
+        Assert.assertNull(loaded.getPomFailure("test:b:1.0-SNAPSHOT"));
+    }
+
+    private static ProjectBuildingException notFoundPom(final String key)
+    {
+        return new ProjectBuildingException(key, "POM not found", notFound(key, null));
+    }
+
+    private static ArtifactNotFoundException notFound(final String key, final Throwable cause)
+    {
+        final String[] parts = key.split(":");
+        return new ArtifactNotFoundException("missing", parts[0], parts[1], parts[2], "pom", null, Collections.EMPTY_LIST, null, Collections.EMPTY_LIST, cause);
+    }
+}
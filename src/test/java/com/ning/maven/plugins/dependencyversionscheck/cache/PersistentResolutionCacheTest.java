@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.cache;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.factory.DefaultArtifactFactory;
+import org.apache.maven.artifact.handler.manager.DefaultArtifactHandlerManager;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+public class PersistentResolutionCacheTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ArtifactFactory artifactFactory;
+    private PersistentResolutionCache cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final DefaultArtifactHandlerManager artifactHandlerManager = new DefaultArtifactHandlerManager();
+        setField(artifactHandlerManager, "artifactHandlers", new HashMap());
+        final DefaultArtifactFactory defaultArtifactFactory = new DefaultArtifactFactory();
+        setField(defaultArtifactFactory, "artifactHandlerManager", artifactHandlerManager);
+        artifactFactory = defaultArtifactFactory;
+
+        cache = new PersistentResolutionCache(folder.getRoot(), artifactFactory);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final Artifact plain = createArtifact("test:plain", "1.0");
+        plain.setVersion("1.0");
+
+        final Artifact recommended = createArtifact("test:recommended", "2.0");
+
+        // The resolver selected another version than the recommended version of the range, e.g. through dependency management.
+        final Artifact selected = createArtifact("test:selected", "3.0");
+        selected.selectVersion("3.1");
+
+        final Artifact classified = artifactFactory.createDependencyArtifact("test", "classified", VersionRange.createFromVersionSpec("4.0"), "test-jar",
+            "tests", Artifact.SCOPE_TEST, true);
+
+        final List artifacts = Arrays.asList(new Artifact[] {plain, recommended, selected, classified});
+        Assert.assertTrue(cache.put("key", artifacts));
+        Assert.assertEquals(describe(artifacts), describe(cache.get("key")));
+        Assert.assertEquals("3.1", ((Artifact) new ArrayList(cache.get("key")).get(2)).getVersion());
+    }
+
+    @Test
+    public void testSnapshotsAndRangesAreNotCached() throws Exception
+    {
+        Assert.assertFalse(cache.put("snapshot", Arrays.asList(new Artifact[] {createArtifact("test:a", "1.0-SNAPSHOT")})));
+        Assert.assertNull(cache.get("snapshot"));
+
+        final Artifact range = createArtifact("test:b", "[1.0,2.0)");
+        range.selectVersion("1.5");
+        Assert.assertFalse(cache.put("range", Arrays.asList(new Artifact[] {range})));
+        Assert.assertNull(cache.get("range"));
+    }
+
+    @Test
+    public void testKeyGuard() throws Exception
+    {
+        Assert.assertTrue(cache.put("first", Arrays.asList(new Artifact[] {createArtifact("test:a", "1.0")})));
+
+        // An entry whose file name matches, but whose key does not, is a hash collision or an entry of another format.
+        Files.copy(getFile("first"), getFile("second"));
+        Assert.assertNull(cache.get("second"));
+
+        Files.write("# v1 third\ntest\ta\tjar\t\tcompile\tfalse\t\t1.0\n", getFile("third"), Charsets.UTF_8);
+        Assert.assertNull(cache.get("third"));
+    }
+
+    @Test
+    public void testCorruptEntry() throws Exception
+    {
+        Assert.assertTrue(cache.put("key", Arrays.asList(new Artifact[] {createArtifact("test:a", "1.0")})));
+        Files.append("garbage\n", getFile("key"), Charsets.UTF_8);
+        Assert.assertNull(cache.get("key"));
+    }
+
+    private Artifact createArtifact(final String name, final String versionSpec) throws Exception
+    {
+        final String[] parts = name.split(":");
+        return artifactFactory.createDependencyArtifact(parts[0], parts[1], VersionRange.createFromVersionSpec(versionSpec), "jar", null,
+            Artifact.SCOPE_COMPILE, false);
+    }
+
+    private File getFile(final String key)
+    {
+        return new File(folder.getRoot(), Hashing.sha1().hashString(key, Charsets.UTF_8).toString());
+    }
+
+    private static List describe(final Collection artifacts)
+    {
+        final List result = new ArrayList();
+        for (Iterator it = artifacts.iterator(); it.hasNext();) {
+            final Artifact artifact = (Artifact) it.next();
+            result.add(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getType() + ":" + artifact.getClassifier()
+                + ":" + artifact.getScope() + ":" + artifact.isOptional() + ":" + artifact.getVersionRange() + ":" + artifact.getVersion()
+                + ":" + artifact.getBaseVersion());
+        }
+        return result;
+    }
+
+    private static void setField(final Object target, final String name, final Object value) throws Exception
+    {
+        final Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
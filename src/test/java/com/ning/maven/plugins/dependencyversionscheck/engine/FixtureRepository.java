@@ -0,0 +1,269 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.engine;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.factory.DefaultArtifactFactory;
+import org.apache.maven.artifact.handler.manager.DefaultArtifactHandlerManager;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.DefaultArtifactCollector;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectBuilder;
+import org.apache.maven.project.ProjectBuildingException;
+import org.apache.maven.project.artifact.InvalidDependencyVersionException;
+import org.apache.maven.project.artifact.MavenMetadataSource;
+import org.apache.maven.shared.dependency.tree.DefaultDependencyTreeBuilder;
+import org.apache.maven.shared.dependency.tree.DependencyNode;
+import org.apache.maven.shared.dependency.tree.DependencyTreeBuilderException;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+import com.ning.maven.plugins.dependencyversionscheck.cache.MissingArtifactCache;
+import com.ning.maven.plugins.dependencyversionscheck.cache.ProjectCache;
+import com.ning.maven.plugins.dependencyversionscheck.executor.ResolutionExecutor;
+import com.ning.maven.plugins.dependencyversionscheck.metrics.RunMetrics;
+import com.ning.maven.plugins.dependencyversionscheck.util.ArtifactOptionalFilter;
+
+/**
+ * A repository of poms held in memory. It builds projects and answers metadata requests like the Maven 2 project builder
+ * and MavenMetadataSource do, so the resolution engines and the Maven 2 artifact collector can run against the same
+ * dependency graph without files or a plexus container.
+ */
+final class FixtureRepository
+{
+    /** groupId:artifactId:version to the pom. */
+    private final Map models = new HashMap();
+
+    private final ArtifactFactory artifactFactory = createArtifactFactory();
+
+    private final ArtifactMetadataSource metadataSource = new ArtifactMetadataSource() {
+        public ResolutionGroup retrieve(final Artifact artifact, final ArtifactRepository localRepository, final List remoteRepositories)
+            throws ArtifactMetadataRetrievalException
+        {
+            try {
+                final Set artifacts = MavenMetadataSource.createArtifacts(artifactFactory, getModel(artifact).getDependencies(), artifact.getScope(),
+                    artifact.getDependencyFilter(), null);
+                return new ResolutionGroup(artifact, artifacts, remoteRepositories);
+            }
+            catch (ProjectBuildingException pbe) {
+                throw new ArtifactMetadataRetrievalException(pbe.getMessage(), pbe, artifact);
+            }
+            catch (InvalidDependencyVersionException idve) {
+                throw new ArtifactMetadataRetrievalException(idve.getMessage(), idve, artifact);
+            }
+        }
+
+        public Artifact retrieveRelocatedArtifact(final Artifact artifact, final ArtifactRepository localRepository, final List remoteRepositories)
+        {
+            return null;
+        }
+
+        public List retrieveAvailableVersions(final Artifact artifact, final ArtifactRepository localRepository, final List remoteRepositories)
+        {
+            final String prefix = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":";
+            final List versions = new ArrayList();
+            for (Iterator it = models.keySet().iterator(); it.hasNext();) {
+                final String key = (String) it.next();
+                if (key.startsWith(prefix)) {
+                    versions.add(new DefaultArtifactVersion(key.substring(prefix.length())));
+                }
+            }
+            return versions;
+        }
+    };
+
+    private final MavenProjectBuilder projectBuilder = (MavenProjectBuilder) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class[] {MavenProjectBuilder.class},
+        new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args)
+                throws ProjectBuildingException
+            {
+                if (!"buildFromRepository".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return new MavenProject(getModel((Artifact) args[0]));
+            }
+        });
+
+    /**
+     * Adds a pom with the given dependencies.
+     */
+    void addPom(final String gav, final Dependency[] dependencies)
+    {
+        final String[] parts = StringUtils.split(gav, ':');
+        final Model model = new Model();
+        model.setGroupId(parts[0]);
+        model.setArtifactId(parts[1]);
+        model.setVersion(parts[2]);
+        for (int i = 0; i < dependencies.length; i++) {
+            model.addDependency(dependencies[i]);
+        }
+        models.put(gav, model);
+    }
+
+    /**
+     * Creates a dependency on groupId:artifactId:version. Every exclusion is given as groupId:artifactId.
+     */
+    static Dependency dependency(final String gav, final String scope, final boolean optional, final String[] exclusions)
+    {
+        final String[] parts = StringUtils.split(gav, ':');
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId(parts[0]);
+        dependency.setArtifactId(parts[1]);
+        dependency.setVersion(parts[2]);
+        dependency.setScope(scope);
+        dependency.setOptional(optional);
+        for (int i = 0; i < exclusions.length; i++) {
+            final String[] excluded = StringUtils.split(exclusions[i], ':');
+            final Exclusion exclusion = new Exclusion();
+            exclusion.setGroupId(excluded[0]);
+            exclusion.setArtifactId(excluded[1]);
+            dependency.addExclusion(exclusion);
+        }
+        return dependency;
+    }
+
+    static Dependency dependency(final String gav)
+    {
+        return dependency(gav, null, false, new String[0]);
+    }
+
+    /**
+     * Creates the artifact of a direct dependency, as it is found in the resolved artifacts of a project.
+     */
+    Artifact createArtifact(final String gav, final String scope)
+    {
+        final String[] parts = StringUtils.split(gav, ':');
+        return artifactFactory.createDependencyArtifact(parts[0], parts[1], VersionRange.createFromVersion(parts[2]), "jar", null, scope);
+    }
+
+    /**
+     * Resolves the transitive hull of an artifact the way the plugin did before the resolution engines: the dependencies of its
+     * pom are created with the filter and then collected by the Maven 2 artifact collector without optional dependencies.
+     */
+    Set collect(final Artifact artifact, final ArtifactFilter filter)
+        throws ProjectBuildingException, InvalidDependencyVersionException, ArtifactResolutionException
+    {
+        final Set dependencyArtifacts = MavenMetadataSource.createArtifacts(artifactFactory, getModel(artifact).getDependencies(), null, filter, null);
+        return new DefaultArtifactCollector().collect(dependencyArtifacts,
+            artifact,
+            Collections.EMPTY_MAP,
+            null,
+            Collections.EMPTY_LIST,
+            metadataSource,
+            new ArtifactOptionalFilter(false),
+            Collections.EMPTY_LIST).getArtifacts();
+    }
+
+    GraphResolutionEngine createGraphEngine()
+    {
+        return createGraphEngine(null);
+    }
+
+    /**
+     * Creates a graph resolution engine that loads poms ahead of the walk with the given executor, if it is not null.
+     */
+    GraphResolutionEngine createGraphEngine(final ResolutionExecutor prefetchExecutor)
+    {
+        final RunMetrics metrics = new RunMetrics();
+        final MissingArtifactCache missingArtifactCache = new MissingArtifactCache();
+        final RepositoryLookup repositoryLookup = new RepositoryLookup(projectBuilder, null, metadataSource, null, Collections.EMPTY_LIST, false, false,
+            missingArtifactCache, metrics);
+        return new GraphResolutionEngine(artifactFactory, metadataSource, repositoryLookup, new ProjectCache(100, missingArtifactCache), null,
+            Collections.EMPTY_LIST, prefetchExecutor, metrics);
+    }
+
+    /**
+     * Builds the dependency tree of a project like the mojos do, with the Maven 2 artifact collector.
+     */
+    DependencyNode buildTree(final String gav)
+        throws DependencyTreeBuilderException
+    {
+        final String[] parts = StringUtils.split(gav, ':');
+        final MavenProject project = new MavenProject((Model) models.get(gav));
+        project.setArtifact(artifactFactory.createProjectArtifact(parts[0], parts[1], parts[2]));
+        project.setRemoteArtifactRepositories(Collections.EMPTY_LIST);
+
+        final DefaultDependencyTreeBuilder treeBuilder = new DefaultDependencyTreeBuilder();
+        treeBuilder.enableLogging(new ConsoleLogger(Logger.LEVEL_DISABLED, "tree"));
+        return treeBuilder.buildDependencyTree(project, null, artifactFactory, metadataSource, null, new DefaultArtifactCollector());
+    }
+
+    ArtifactFactory getArtifactFactory()
+    {
+        return artifactFactory;
+    }
+
+    private Model getModel(final Artifact artifact)
+        throws ProjectBuildingException
+    {
+        final String key = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+        final Model model = (Model) models.get(key);
+        if (model == null) {
+            throw new ProjectBuildingException(key, "No pom for " + key);
+        }
+        return model;
+    }
+
+    private static ArtifactFactory createArtifactFactory()
+    {
+        final DefaultArtifactHandlerManager artifactHandlerManager = new DefaultArtifactHandlerManager();
+        setField(artifactHandlerManager, "artifactHandlers", new HashMap());
+        final DefaultArtifactFactory artifactFactory = new DefaultArtifactFactory();
+        setField(artifactFactory, "artifactHandlerManager", artifactHandlerManager);
+        return artifactFactory;
+    }
+
+    /**
+     * Sets a field that plexus would inject.
+     */
+    private static void setField(final Object target, final String name, final Object value)
+    {
+        try {
+            final Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Could not set " + name, e);
+        }
+    }
+}
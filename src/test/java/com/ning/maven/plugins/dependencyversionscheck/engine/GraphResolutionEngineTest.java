@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.engine;
+
+import static com.ning.maven.plugins.dependencyversionscheck.engine.FixtureRepository.dependency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.resolver.filter.ExcludesArtifactFilter;
+import org.apache.maven.model.Dependency;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ning.maven.plugins.dependencyversionscheck.executor.Cancellation;
+import com.ning.maven.plugins.dependencyversionscheck.executor.ResolutionExecutor;
+import com.ning.maven.plugins.dependencyversionscheck.util.ArtifactScopeFilter;
+
+/**
+ * Compares the graph resolution engine with the Maven 2 artifact collector, which the plugin used for every direct dependency
+ * before. Both must return the same transitive hull.
+ */
+public class GraphResolutionEngineTest
+{
+    private static final String[] NONE = new String[0];
+    private static final ArtifactFilter COMPILE_RUNTIME = new ArtifactScopeFilter(new String[] {Artifact.SCOPE_COMPILE, Artifact.SCOPE_RUNTIME});
+
+    private FixtureRepository repository;
+
+    @Before
+    public void setUp()
+    {
+        repository = new FixtureRepository();
+    }
+
+    @Test
+    public void testNearestWins()
+    {
+        repository.addPom("test:root:1", new Dependency[] {dependency("test:a:1"), dependency("test:b:1")});
+        repository.addPom("test:a:1", new Dependency[] {dependency("test:c:2")});
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:d:1")});
+        repository.addPom("test:d:1", new Dependency[] {dependency("test:c:1")});
+        repository.addPom("test:c:1", new Dependency[0]);
+        repository.addPom("test:c:2", new Dependency[0]);
+
+        assertSameHull("test:root:1", COMPILE_RUNTIME);
+    }
+
+    @Test
+    public void testOptionalDependencies()
+    {
+        // The optional dependency o of the root comes first and is nearer than the c below b.
+        repository.addPom("test:root:1", new Dependency[] {
+            dependency("test:o:1", null, true, NONE),
+            dependency("test:a:1"),
+        });
+        repository.addPom("test:o:1", new Dependency[] {dependency("test:c:1"), dependency("test:x:1")});
+        repository.addPom("test:a:1", new Dependency[] {
+            dependency("test:b:1"),
+            dependency("test:p:1", null, true, NONE),
+        });
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:c:2"), dependency("test:x:2")});
+        repository.addPom("test:p:1", new Dependency[] {dependency("test:y:1")});
+        repository.addPom("test:c:1", new Dependency[0]);
+        repository.addPom("test:c:2", new Dependency[0]);
+        repository.addPom("test:x:1", new Dependency[0]);
+        repository.addPom("test:x:2", new Dependency[0]);
+        repository.addPom("test:y:1", new Dependency[0]);
+
+        assertSameHull("test:root:1", COMPILE_RUNTIME);
+    }
+
+    @Test
+    public void testScopeFilter()
+    {
+        repository.addPom("test:root:1", new Dependency[] {
+            dependency("test:a:1"),
+            dependency("test:provided:1", Artifact.SCOPE_PROVIDED, false, NONE),
+            dependency("test:test:1", Artifact.SCOPE_TEST, false, NONE),
+            dependency("test:runtime:1", Artifact.SCOPE_RUNTIME, false, NONE),
+        });
+        repository.addPom("test:a:1", new Dependency[] {
+            dependency("test:b:1", Artifact.SCOPE_RUNTIME, false, NONE),
+            dependency("test:provided:2"),
+            dependency("test:c:1", Artifact.SCOPE_TEST, false, NONE),
+        });
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:d:1")});
+        repository.addPom("test:runtime:1", new Dependency[] {dependency("test:e:1")});
+        repository.addPom("test:provided:1", new Dependency[0]);
+        repository.addPom("test:provided:2", new Dependency[0]);
+        repository.addPom("test:test:1", new Dependency[0]);
+        repository.addPom("test:c:1", new Dependency[0]);
+        repository.addPom("test:d:1", new Dependency[0]);
+        repository.addPom("test:e:1", new Dependency[0]);
+
+        assertSameHull("test:root:1", COMPILE_RUNTIME);
+        assertSameHull("test:root:1", new ArtifactScopeFilter(new String[] {Artifact.SCOPE_COMPILE}));
+    }
+
+    @Test
+    public void testExclusions()
+    {
+        repository.addPom("test:root:1", new Dependency[] {
+            dependency("test:a:1", null, false, new String[] {"test:d"}),
+            dependency("test:b:1"),
+        });
+        repository.addPom("test:a:1", new Dependency[] {dependency("test:d:1"), dependency("test:e:1")});
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:c:1")});
+        repository.addPom("test:c:1", new Dependency[] {dependency("test:d:2"), dependency("test:excluded:1")});
+        repository.addPom("test:d:1", new Dependency[0]);
+        repository.addPom("test:d:2", new Dependency[0]);
+        repository.addPom("test:e:1", new Dependency[0]);
+        repository.addPom("test:excluded:1", new Dependency[0]);
+
+        // The exclusions of the direct dependency in the project are part of the filter.
+        final AndArtifactFilter filter = new AndArtifactFilter();
+        filter.add(new ExcludesArtifactFilter(Collections.singletonList("test:excluded")));
+        filter.add(COMPILE_RUNTIME);
+
+        assertSameHull("test:root:1", filter);
+    }
+
+    @Test
+    public void testPrefetch()
+        throws Exception
+    {
+        repository.addPom("test:root:1", new Dependency[] {dependency("test:a:1"), dependency("test:b:1"), dependency("test:missing:1")});
+        repository.addPom("test:a:1", new Dependency[] {dependency("test:c:2")});
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:d:1")});
+        repository.addPom("test:d:1", new Dependency[] {dependency("test:c:1")});
+        repository.addPom("test:c:1", new Dependency[0]);
+        repository.addPom("test:c:2", new Dependency[0]);
+
+        final ResolutionExecutor executor = new ResolutionExecutor();
+        executor.configure(false, 4, 0, 1L);
+        final GraphResolutionEngine engine = repository.createGraphEngine(executor);
+        try {
+            engine.resolve(repository.createArtifact("test:root:1", Artifact.SCOPE_COMPILE), COMPILE_RUNTIME, new Cancellation());
+            Assert.fail("the pom of test:missing:1 does not exist");
+        }
+        catch (ArtifactResolutionException expected) {
+            // expected
+        }
+
+        repository.addPom("test:missing:1", new Dependency[0]);
+        final List expected = describe(repository.collect(repository.createArtifact("test:root:1", Artifact.SCOPE_COMPILE), COMPILE_RUNTIME));
+        final List actual = describe(repository.createGraphEngine(executor).resolve(repository.createArtifact("test:root:1", Artifact.SCOPE_COMPILE),
+            COMPILE_RUNTIME, new Cancellation()));
+        Assert.assertEquals(expected, actual);
+    }
+
+    private void assertSameHull(final String gav, final ArtifactFilter filter)
+    {
+        try {
+            final List expected = describe(repository.collect(repository.createArtifact(gav, Artifact.SCOPE_COMPILE), filter));
+            final List actual = describe(repository.createGraphEngine().resolve(repository.createArtifact(gav, Artifact.SCOPE_COMPILE), filter, new Cancellation()));
+            Assert.assertEquals(expected, actual);
+        }
+        catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List describe(final Set artifacts)
+    {
+        final List result = new ArrayList();
+        for (Iterator it = artifacts.iterator(); it.hasNext();) {
+            final Artifact artifact = (Artifact) it.next();
+            result.add(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion() + ":" + artifact.getScope());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.engine;
+
+import static com.ning.maven.plugins.dependencyversionscheck.engine.FixtureRepository.dependency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.model.Dependency;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ning.maven.plugins.dependencyversionscheck.util.ArtifactScopeFilter;
+
+/**
+ * Compares the tree resolution engine with the Maven 2 artifact collector. The engine must either return the same transitive
+ * hull or null, so that the caller falls back to the artifact resolver.
+ */
+public class TreeResolutionEngineTest
+{
+    private static final ArtifactFilter COMPILE_RUNTIME = new ArtifactScopeFilter(new String[] {Artifact.SCOPE_COMPILE, Artifact.SCOPE_RUNTIME});
+
+    private FixtureRepository repository;
+
+    @Before
+    public void setUp()
+    {
+        repository = new FixtureRepository();
+        repository.addPom("test:c:1", new Dependency[] {dependency("test:x:1")});
+        repository.addPom("test:x:1", new Dependency[0]);
+    }
+
+    @Test
+    public void testDuplicateIsExpanded() throws Exception
+    {
+        // c is included below b and omitted as a duplicate below a, so the hull of a reuses the children of c below b.
+        repository.addPom("test:project:1", new Dependency[] {dependency("test:b:1"), dependency("test:a:1")});
+        repository.addPom("test:a:1", new Dependency[] {dependency("test:c:1")});
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:c:1")});
+
+        final Set hull = resolve("test:a:1");
+        Assert.assertNotNull(hull);
+        Assert.assertEquals(describe(collect("test:a:1")), describe(hull));
+    }
+
+    @Test
+    public void testDuplicateWithOtherExclusions() throws Exception
+    {
+        // Below b, x is excluded from the children of c, but not below a.
+        repository.addPom("test:project:1", new Dependency[] {
+            dependency("test:b:1", null, false, new String[] {"test:x"}),
+            dependency("test:a:1"),
+        });
+        repository.addPom("test:a:1", new Dependency[] {dependency("test:c:1")});
+        repository.addPom("test:b:1", new Dependency[] {dependency("test:c:1")});
+
+        Assert.assertEquals(Collections.singletonList("test:c:1:compile"), describe(resolve("test:b:1")));
+        Assert.assertNull(resolve("test:a:1"));
+    }
+
+    private Set resolve(final String gav) throws Exception
+    {
+        final TreeResolutionEngine engine = new TreeResolutionEngine(repository.getArtifactFactory(), repository.buildTree("test:project:1"), null);
+        return engine.resolve(repository.createArtifact(gav, Artifact.SCOPE_COMPILE), COMPILE_RUNTIME);
+    }
+
+    private Set collect(final String gav) throws Exception
+    {
+        return repository.collect(repository.createArtifact(gav, Artifact.SCOPE_COMPILE), COMPILE_RUNTIME);
+    }
+
+    private static List describe(final Set artifacts)
+    {
+        final List result = new ArrayList();
+        for (Iterator it = artifacts.iterator(); it.hasNext();) {
+            final Artifact artifact = (Artifact) it.next();
+            result.add(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion() + ":" + artifact.getScope());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
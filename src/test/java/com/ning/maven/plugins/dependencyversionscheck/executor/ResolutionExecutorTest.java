@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.executor;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResolutionExecutorTest
+{
+    @Test
+    public void testWithdrawDropsQueuedAndWaitsForRunningTasks()
+        throws Exception
+    {
+        final ResolutionExecutor executor = new ResolutionExecutor();
+        executor.configure(false, 1, 0, 1L);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean firstEnded = new AtomicBoolean();
+        final AtomicBoolean secondRan = new AtomicBoolean();
+
+        // The pool has a single thread, so the second task stays queued while the first one runs.
+        final ResolutionExecutor.Fork first = executor.fork(new Callable() {
+            public Object call() throws InterruptedException
+            {
+                started.countDown();
+                release.await();
+                firstEnded.set(true);
+                return null;
+            }
+        }, new Cancellation());
+        final ResolutionExecutor.Fork second = executor.fork(new Callable() {
+            public Object call()
+            {
+                secondRan.set(true);
+                return null;
+            }
+        }, new Cancellation());
+
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        new Thread(new Runnable() {
+            public void run()
+            {
+                try {
+                    Thread.sleep(100L);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }
+        }).start();
+
+        executor.withdraw(Arrays.asList(new Object[] {first, second}));
+        Assert.assertTrue(firstEnded.get());
+
+        // Once the worker is free, it finds the second task dropped.
+        executor.invokeAll(Arrays.asList(new Object[] {new Callable() {
+            public Object call()
+            {
+                return null;
+            }
+        }, new Callable() {
+            public Object call()
+            {
+                return null;
+            }
+        }}));
+        Assert.assertFalse(secondRan.get());
+    }
+
+    @Test
+    public void testCancelledForkIsSkipped()
+    {
+        final Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+
+        final AtomicBoolean ran = new AtomicBoolean();
+        final ResolutionExecutor executor = new ResolutionExecutor();
+        final ResolutionExecutor.Fork fork = executor.fork(new Callable() {
+            public Object call()
+            {
+                ran.set(true);
+                return null;
+            }
+        }, cancellation);
+
+        executor.withdraw(Arrays.asList(new Object[] {fork}));
+        Assert.assertFalse(ran.get());
+    }
+}
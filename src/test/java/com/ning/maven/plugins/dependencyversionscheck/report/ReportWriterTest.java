@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.report;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.ning.maven.plugins.dependencyversionscheck.version.ResolutionAggregate;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+import com.ning.maven.plugins.dependencyversionscheck.version.VersionResolution;
+
+public class ReportWriterTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testJson() throws Exception
+    {
+        final File file = write(ReportWriter.FORMAT_JSON, true);
+        Assert.assertEquals("{\"project\":\"com.example:app:jar:1.0\",\"scope\":null,\"dependencies\":[\n"
+            + "{\"name\":\"log4j:log4j\",\"resolvedVersion\":\"1.2.16\",\"direct\":false,\"expectedVersion\":null,\"conflict\":true,\"expectations\":["
+            + "{\"version\":\"1.2.13\",\"direct\":false,\"conflict\":true,\"dependents\":[\"com.example:\\\"a\\\"\"]},"
+            + "{\"version\":\"1.2.16\",\"direct\":false,\"conflict\":false,\"dependents\":[\"com.example:b\"]}]}\n"
+            + "],\"dependencyCount\":1,\"conflictCount\":1,\"complete\":true}\n",
+            Files.toString(file, Charsets.UTF_8));
+    }
+
+    @Test
+    public void testIncompleteJson() throws Exception
+    {
+        final File file = write(ReportWriter.FORMAT_JSON, false);
+        Assert.assertTrue(Files.toString(file, Charsets.UTF_8).endsWith(",\"complete\":false}\n"));
+    }
+
+    @Test
+    public void testXml() throws Exception
+    {
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(write(ReportWriter.FORMAT_XML, false));
+        final Element root = document.getDocumentElement();
+        Assert.assertEquals("com.example:app:jar:1.0", root.getAttribute("project"));
+        Assert.assertFalse(root.hasAttribute("scope"));
+
+        final Element dependency = (Element) root.getElementsByTagName("dependency").item(0);
+        Assert.assertEquals("log4j:log4j", dependency.getAttribute("name"));
+        Assert.assertEquals("1.2.16", dependency.getAttribute("resolvedVersion"));
+        Assert.assertEquals("true", dependency.getAttribute("conflict"));
+        Assert.assertEquals(2, dependency.getElementsByTagName("expectation").getLength());
+        Assert.assertEquals("com.example:\"a\"", dependency.getElementsByTagName("dependent").item(0).getTextContent());
+
+        final Element summary = (Element) root.getElementsByTagName("summary").item(0);
+        Assert.assertEquals("1", summary.getAttribute("dependencies"));
+        Assert.assertEquals("1", summary.getAttribute("conflicts"));
+        Assert.assertEquals("false", summary.getAttribute("complete"));
+    }
+
+    @Test
+    public void testAbortRemovesReport() throws Exception
+    {
+        final File file = new File(folder.getRoot(), "report.json");
+        final ReportWriter writer = ReportWriter.open(ReportWriter.FORMAT_JSON, file, "com.example:app:jar:1.0", null);
+        writer.write(createAggregate());
+        writer.abort();
+        Assert.assertFalse(file.exists());
+    }
+
+    private File write(final String format, final boolean complete)
+        throws IOException
+    {
+        final File file = new File(folder.getRoot(), "report." + format);
+        final ReportWriter writer = ReportWriter.open(format, file, "com.example:app:jar:1.0", null);
+        writer.write(createAggregate());
+        writer.close(complete);
+        Assert.assertEquals(1, writer.getDependencyCount());
+        Assert.assertEquals(1, writer.getConflictCount());
+        return file;
+    }
+
+    private static ResolutionAggregate createAggregate()
+    {
+        final Version resolved = new Version("1.2.16");
+        final VersionResolution conflict = new VersionResolution("com.example:\"a\"", "log4j:log4j", new Version("1.2.13"), resolved, false);
+        conflict.setConflict(true);
+
+        final ResolutionAggregate aggregate = new ResolutionAggregate("log4j:log4j");
+        aggregate.add(conflict);
+        aggregate.add(new VersionResolution("com.example:b", "log4j:log4j", new Version("1.2.16"), resolved, false));
+        return aggregate;
+    }
+}
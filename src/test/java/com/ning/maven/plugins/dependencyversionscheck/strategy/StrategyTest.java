@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.strategy;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ning.maven.plugins.dependencyversionscheck.strategy.APRVersionStrategy.AprVersion;
+import com.ning.maven.plugins.dependencyversionscheck.version.Version;
+import com.ning.maven.plugins.dependencyversionscheck.version.VersionElement;
+import com.ning.maven.plugins.dependencyversionscheck.version.VersionTest;
+
+/**
+ * Checks the bundled strategies against the implementations that compared {@link VersionElement}s, on every pair of versions
+ * of the corpus, and against some known results.
+ */
+public class StrategyTest
+{
+    private final Strategy defaultStrategy = new DefaultVersionStrategy();
+    private final Strategy singleDigit = new SingleDigitVersionStrategy();
+    private final Strategy apr = new APRVersionStrategy();
+    private final Strategy twoDigits = new TwoDigitsBackwardCompatibleVersionStrategy();
+
+    @Test
+    public void testCorpus()
+    {
+        int pairs = 0;
+        for (int i = 0; i < VersionTest.CORPUS.length; i++) {
+            for (int j = 0; j < VersionTest.CORPUS.length; j++) {
+                final Version versionA = new Version(VersionTest.CORPUS[i]);
+                final Version versionB = new Version(VersionTest.CORPUS[j]);
+                final String message = versionA + " / " + versionB;
+
+                final boolean defaultResult;
+                final AprVersion aprVersionA;
+                final AprVersion aprVersionB;
+                try {
+                    defaultResult = isCompatibleDefault(versionA, versionB);
+                    aprVersionA = getAprVersion(versionA.getVersionElements());
+                    aprVersionB = getAprVersion(versionB.getVersionElements());
+                }
+                catch (RuntimeException e) {
+                    // The element based implementations failed on malformed versions, e.g. with empty elements.
+                    continue;
+                }
+
+                Assert.assertEquals(message, defaultResult, defaultStrategy.isCompatible(versionA, versionB));
+                Assert.assertEquals(message,
+                    versionA.getVersionElements()[0].getNumber() >= versionB.getVersionElements()[0].getNumber(),
+                    singleDigit.isCompatible(versionA, versionB));
+                Assert.assertEquals(message, isCompatibleApr(aprVersionA, aprVersionB), apr.isCompatible(versionA, versionB));
+                Assert.assertEquals(message, isCompatibleTwoDigits(aprVersionA, aprVersionB), twoDigits.isCompatible(versionA, versionB));
+                pairs++;
+            }
+        }
+        Assert.assertTrue(pairs > VersionTest.CORPUS.length * VersionTest.CORPUS.length / 2);
+    }
+
+    @Test
+    public void testDefault()
+    {
+        Assert.assertTrue(isCompatible(defaultStrategy, "1.2.3", "1.2.2"));
+        Assert.assertTrue(isCompatible(defaultStrategy, "1.10", "1.9"));
+        Assert.assertTrue(isCompatible(defaultStrategy, "1.0.1", "1.0"));
+        Assert.assertFalse(isCompatible(defaultStrategy, "1.0", "1.0.1"));
+        Assert.assertFalse(isCompatible(defaultStrategy, "1.0-beta", "1.0-alpha"));
+        Assert.assertTrue(isCompatible(defaultStrategy, "1.0-rc2", "1.0-rc1"));
+    }
+
+    @Test
+    public void testSingleDigit()
+    {
+        Assert.assertTrue(isCompatible(singleDigit, "2.0", "1.9"));
+        Assert.assertTrue(isCompatible(singleDigit, "1.0", "1.9"));
+        Assert.assertFalse(isCompatible(singleDigit, "1.9", "2.0"));
+    }
+
+    @Test
+    public void testApr()
+    {
+        Assert.assertTrue(isCompatible(apr, "1.3", "1.2"));
+        Assert.assertTrue(isCompatible(apr, "1.2.0", "1.2.5"));
+        // A lower minor version is only compatible with the same qualifier.
+        Assert.assertTrue(isCompatible(apr, "1.2", "1.3"));
+        Assert.assertFalse(isCompatible(apr, "1.2-rc1", "1.3"));
+        Assert.assertFalse(isCompatible(apr, "2.0", "1.0"));
+        Assert.assertTrue(isCompatible(apr, "1.2-rc1", "1.3-rc1"));
+        Assert.assertFalse(isCompatible(apr, "1.2-rc1", "1.3-rc2"));
+        Assert.assertFalse(isCompatible(apr, "r09", "r09"));
+    }
+
+    @Test
+    public void testTwoDigits()
+    {
+        Assert.assertTrue(isCompatible(twoDigits, "2.0", "1.9"));
+        Assert.assertTrue(isCompatible(twoDigits, "1.0", "1.9"));
+        Assert.assertTrue(isCompatible(twoDigits, "1.9", "2.0"));
+        Assert.assertFalse(isCompatible(twoDigits, "1.9-rc1", "2.0"));
+    }
+
+    private static boolean isCompatible(final Strategy strategy, final String versionA, final String versionB)
+    {
+        return strategy.isCompatible(new Version(versionA), new Version(versionB));
+    }
+
+    private static boolean isCompatibleDefault(final Version versionA, final Version versionB)
+    {
+        final VersionElement[] versionAElements = versionA.getVersionElements();
+        final VersionElement[] versionBElements = versionB.getVersionElements();
+
+        final int lenToCheck = Math.min(versionAElements.length, versionBElements.length);
+        for (int i = 0; i < lenToCheck; i++) {
+            if (versionAElements[i].hasNumbers() && versionBElements[i].hasNumbers()) {
+                if (versionAElements[i].getNumber() != versionBElements[i].getNumber()) {
+                    return versionAElements[i].getNumber() > versionBElements[i].getNumber();
+                }
+            }
+            else if (!versionAElements[i].getElement().equals(versionBElements[i].getElement())) {
+                return false;
+            }
+        }
+        return versionAElements.length >= versionBElements.length;
+    }
+
+    private static boolean isCompatibleApr(final AprVersion aprVersionA, final AprVersion aprVersionB)
+    {
+        if (aprVersionA == null || aprVersionB == null || aprVersionA.getMajor() != aprVersionB.getMajor()) {
+            return false;
+        }
+        return aprVersionA.getMinor() >= aprVersionB.getMinor() || StringUtils.equals(aprVersionA.getQualifier(), aprVersionB.getQualifier());
+    }
+
+    private static boolean isCompatibleTwoDigits(final AprVersion aprVersionA, final AprVersion aprVersionB)
+    {
+        if (aprVersionA == null || aprVersionB == null) {
+            return false;
+        }
+        return aprVersionA.getMajor() >= aprVersionB.getMajor() || StringUtils.equals(aprVersionA.getQualifier(), aprVersionB.getQualifier());
+    }
+
+    private static AprVersion getAprVersion(final VersionElement[] versionElements)
+    {
+        if (versionElements.length < 2) {
+            return null;
+        }
+
+        if (!(versionElements[0].isNumber() && versionElements[0].hasDot() && versionElements[1].isNumber())) {
+            return null;
+        }
+
+        final long major = versionElements[0].getNumber();
+        final long minor = versionElements[1].getNumber();
+
+        long patch = 0;
+        int qualifierStart = 1;
+
+        if (versionElements.length > 2) {
+            if (versionElements[1].hasDot() && versionElements[2].isNumber()) {
+                patch = versionElements[2].getNumber();
+                qualifierStart = 2;
+            }
+        }
+
+        final StringBuilder qualifier = new StringBuilder();
+        while (!versionElements[qualifierStart++].hasEndOfVersion()) {
+            qualifier.append(versionElements[qualifierStart]);
+        }
+
+        return new AprVersion(major, minor, patch, qualifier.toString());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.ning.maven.plugins.dependencyversionscheck.version;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the packed element arrays of a {@link Version} hold the same values as its {@link VersionElement}s, which the
+ * strategies used before.
+ */
+public class VersionTest
+{
+    /** Versions of popular artifacts, see versions.txt of the benchmarks, and some malformed ones. */
+    public static final String[] CORPUS = new String[] {
+        "1", "1.0", "1.0.1", "2.6", "10.0.1", "0.10.2.2", "1.8.0.10", "19.3.0.0", "2.9.10.8",
+        "0.5.0-cdh", "0.8.0-beta1", "0.9.3-1", "0.98.24-hadoop2", "1.0.0-beta-4584", "1.0.0-rc.9", "1.0.b2", "1.2.0-cdh5.16.2",
+        "1.3.2-201002241900", "1.4.10-java7", "1.5.0-RC16", "1.5.22.RELEASE", "1.7-beta1", "1.9.14-atlassian-6", "10.0.0-SNAPSHOT",
+        "11.0.0-M11", "12.0.0.beta3", "14.0-rc1", "2.0-m13-3", "2.0.0.M7", "2.0.2-beta", "2.1_3", "2.2.12-b140109.1041",
+        "2.3.10.Final", "2.3.28-incubating", "2.5.6.SEC03", "2.7.2_jdk8", "27.0.1-jre", "r09", "v1.2", "1..2", "1.0+build", "1.2.x",
+    };
+
+    @Test
+    public void testPackedElements()
+    {
+        for (int i = 0; i < CORPUS.length; i++) {
+            final Version version = new Version(CORPUS[i]);
+            final VersionElement[] versionElements = version.getVersionElements();
+
+            int count = 0;
+            for (int j = 0; j < versionElements.length && versionElements[j] != null; j++) {
+                final VersionElement element = versionElements[j];
+                final String message = CORPUS[i] + " element " + j;
+                Assert.assertEquals(message, element.getElement(), version.getElement(j));
+                Assert.assertEquals(message, element.getFlags(), version.getFlags(j));
+                Assert.assertEquals(message, element.getDivider(), version.getDivider(j));
+                Assert.assertEquals(message, element.getDividerChar(), version.getDividerChar(j));
+                Assert.assertEquals(message, element.hasNumbers(), version.hasNumbers(j));
+                Assert.assertEquals(message, element.isNumber(), version.isNumber(j));
+                Assert.assertEquals(message, element.hasLetters(), version.hasLetters(j));
+                Assert.assertEquals(message, element.hasDot(), version.hasDot(j));
+                Assert.assertEquals(message, element.hasEndOfVersion(), version.hasEndOfVersion(j));
+                Assert.assertEquals(message, element.getNumber(), version.getNumber(j));
+                count++;
+            }
+            Assert.assertEquals(CORPUS[i], count, version.getElementCount());
+        }
+    }
+
+    @Test
+    public void testNumbers()
+    {
+        final Version version = new Version("2.2.12-b140109.1041");
+        Assert.assertEquals(2L, version.getNumber(0));
+        Assert.assertEquals(140109L, version.getNumber(3));
+        Assert.assertEquals(0L, new Version("1.0-SNAPSHOT").getNumber(2));
+        Assert.assertEquals(Long.MAX_VALUE, new Version("1." + Long.MAX_VALUE).getNumber(1));
+    }
+
+    @Test
+    public void testNumberOverflow()
+    {
+        // Does not fit into a long, so like VersionElement#getNumber() the number can be parsed but not used.
+        final Version version = new Version("1.99999999999999999999-rc1");
+        Assert.assertEquals(3, version.getElementCount());
+        Assert.assertEquals(1L, version.getNumber(0));
+        Assert.assertEquals(1L, version.getNumber(2));
+        try {
+            version.getVersionElements()[1].getNumber();
+            Assert.fail("VersionElement parsed an overflowing number");
+        }
+        catch (NumberFormatException expected) {
+            // expected
+        }
+        try {
+            version.getNumber(1);
+            Assert.fail("Version returned an overflowing number");
+        }
+        catch (NumberFormatException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompareTo()
+    {
+        // Versions are ordered by their selected version strings.
+        Assert.assertTrue(new Version("1.0").compareTo(new Version("1.1")) < 0);
+        Assert.assertTrue(new Version("1.10").compareTo(new Version("1.9")) < 0);
+        Assert.assertTrue(new Version("[1.0,2.0)", "1.5").compareTo(new Version("1.4")) > 0);
+        Assert.assertEquals(0, new Version("[1.0,2.0)", "1.5").compareTo(new Version("1.5")));
+        Assert.assertEquals(0, Version.of("1.0").compareTo(new Version("1.0")));
+    }
+
+    @Test
+    public void testCanonicalInstances()
+    {
+        Assert.assertSame(Version.of("1.0"), Version.of("1.0"));
+        Assert.assertSame(Version.of("[1.0,2.0)", "1.5"), Version.of("[1.0,2.0)", "1.5"));
+        Assert.assertNotSame(Version.of("1.5"), Version.of("[1.0,2.0)", "1.5"));
+        Assert.assertFalse(Version.of("1.5").equals(Version.of("[1.0,2.0)", "1.5")));
+        Assert.assertEquals(Version.of("1.0"), new Version("1.0"));
+    }
+}